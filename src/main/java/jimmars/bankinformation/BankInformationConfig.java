@@ -0,0 +1,45 @@
+package jimmars.bankinformation;
+
+import net.runelite.client.config.Config;
+import net.runelite.client.config.ConfigGroup;
+import net.runelite.client.config.ConfigItem;
+import net.runelite.client.config.Keybind;
+
+@ConfigGroup(BankInformationConfig.GROUP)
+public interface BankInformationConfig extends Config
+{
+	String GROUP = "bankinformation";
+
+	@ConfigItem(
+		keyName = "exportSnapshot",
+		name = "Export snapshot file",
+		description = "Publishes the latest bank snapshot to a memory-mapped file that external tools can read",
+		position = 1
+	)
+	default boolean exportSnapshot()
+	{
+		return false;
+	}
+
+	@ConfigItem(
+		keyName = "watchRules",
+		name = "Watch rules",
+		description = "Notifies when a rule starts to hold. One rule per line, for example \"total > 1b\", \"tag:pvm < 500m\" or \"item:385 < 1000\"",
+		position = 2
+	)
+	default String watchRules()
+	{
+		return "";
+	}
+
+	@ConfigItem(
+		keyName = "searchHotkey",
+		name = "Search hotkey",
+		description = "Opens and closes a search of your bank drawn over the game",
+		position = 3
+	)
+	default Keybind searchHotkey()
+	{
+		return Keybind.NOT_SET;
+	}
+}
@@ -0,0 +1,121 @@
+package jimmars.bankinformation;
+
+import java.awt.BorderLayout;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.function.Supplier;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
+import javax.swing.border.EmptyBorder;
+import lombok.Getter;
+import net.runelite.client.ui.ColorScheme;
+import net.runelite.client.ui.DynamicGridLayout;
+import net.runelite.client.ui.FontManager;
+import net.runelite.client.util.QuantityFormatter;
+
+/**
+ * A collapsible group in the bank list. The item rows of a group are only built the first
+ * time it is expanded.
+ */
+class BankInformationGroupRow extends JPanel
+{
+	private static final Color GROUP_BACKGROUND = ColorScheme.DARKER_GRAY_COLOR;
+
+	@Getter
+	private final GroupTotal group;
+
+	private final Supplier<JPanel> itemsSupplier;
+	private final JPanel header = new JPanel(new BorderLayout());
+	private final JLabel nameLabel = new JLabel();
+
+	private JPanel items;
+	private boolean expanded;
+
+	BankInformationGroupRow(GroupTotal group, boolean expanded, Supplier<JPanel> itemsSupplier, Runnable onToggle)
+	{
+		this.group = group;
+		this.itemsSupplier = itemsSupplier;
+
+		setLayout(new DynamicGridLayout(0, 1));
+
+		header.setBorder(new EmptyBorder(4, 0, 4, 0));
+		header.setBackground(GROUP_BACKGROUND);
+		header.addMouseListener(new MouseAdapter()
+		{
+			@Override
+			public void mousePressed(MouseEvent mouseEvent)
+			{
+				if (SwingUtilities.isLeftMouseButton(mouseEvent))
+				{
+					setExpanded(!BankInformationGroupRow.this.expanded);
+					onToggle.run();
+				}
+			}
+
+			@Override
+			public void mouseEntered(MouseEvent mouseEvent)
+			{
+				header.setBackground(GROUP_BACKGROUND.brighter());
+			}
+
+			@Override
+			public void mouseExited(MouseEvent mouseEvent)
+			{
+				header.setBackground(GROUP_BACKGROUND);
+			}
+		});
+
+		nameLabel.setFont(FontManager.getRunescapeSmallFont());
+		nameLabel.setBorder(new EmptyBorder(0, 5, 0, 5));
+
+		JLabel countLabel = new JLabel(QuantityFormatter.quantityToStackSize(group.getCount()));
+		countLabel.setFont(FontManager.getRunescapeSmallFont());
+		countLabel.setBorder(new EmptyBorder(0, 5, 0, 5));
+		countLabel.setPreferredSize(new Dimension(BankInformationTableRow.ITEM_COUNT_COLUMN_WIDTH, 0));
+
+		JLabel valueLabel = new JLabel(QuantityFormatter.quantityToStackSize(group.getValue()), JLabel.RIGHT);
+		valueLabel.setFont(FontManager.getRunescapeSmallFont());
+		valueLabel.setBorder(new EmptyBorder(0, 5, 0, 5));
+		valueLabel.setPreferredSize(new Dimension(BankInformationTableRow.ITEM_VALUE_COLUMN_WIDTH, 0));
+
+		JPanel leftSide = new JPanel(new BorderLayout());
+		leftSide.setOpaque(false);
+		leftSide.add(nameLabel, BorderLayout.CENTER);
+		leftSide.add(countLabel, BorderLayout.EAST);
+
+		header.add(leftSide, BorderLayout.CENTER);
+		header.add(valueLabel, BorderLayout.EAST);
+
+		add(header);
+		setExpanded(expanded);
+	}
+
+	private void setExpanded(boolean expanded)
+	{
+		this.expanded = expanded;
+		nameLabel.setText((expanded ? "- " : "+ ") + group.getName());
+
+		if (expanded && items == null)
+		{
+			items = itemsSupplier.get();
+		}
+
+		if (items != null)
+		{
+			if (expanded)
+			{
+				add(items);
+			}
+			else
+			{
+				remove(items);
+			}
+		}
+
+		revalidate();
+		repaint();
+	}
+}
@@ -27,20 +27,26 @@ package jimmars.bankinformation;
 import java.awt.BorderLayout;
 import java.awt.Color;
 import java.awt.Dimension;
-import java.awt.GridLayout;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.KeyEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import javax.swing.BorderFactory;
 import javax.swing.JComboBox;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.JTextField;
 import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 import lombok.extern.slf4j.Slf4j;
 import net.runelite.client.ui.ColorScheme;
 import net.runelite.client.ui.DynamicGridLayout;
@@ -63,18 +69,44 @@ class BankInformationPanel extends PluginPanel
 	private boolean ascendingOrder = false;
 
 	private ArrayList<BankInformationTableRow> rows = new ArrayList<>();
+	private ArrayList<BankInformationGroupRow> groupRows = new ArrayList<>();
 	private BankInformationPlugin plugin;
 
 	private String filterString = "";
 
+	private BankSnapshot snapshot = BankSnapshot.EMPTY;
 	private List<CachedItem> cachedItems = new ArrayList<>();
 	private List<String> bankTags = new ArrayList<>();
+	private Map<GroupBy, List<GroupTotal>> groupTotals = new EnumMap<>(GroupBy.class);
+	private final Set<String> expandedGroups = new HashSet<>();
 
 	private JLabel bankValueAmountLabel;
 	private JLabel filteredValueAmountLabel;
-	private final JPanel totalValuePanel;
-	private final JPanel filteredValuePanel;
+	private JPanel totalValuePanel;
+	private JPanel filteredValuePanel;
 	final JComboBox<String> bankTagsComboBox = new JComboBox<String>();
+	final JComboBox<GroupBy> groupByComboBox = new JComboBox<>(GroupBy.values());
+	final JComboBox<HistoryQuery> historyComboBox = new JComboBox<>(HistoryQuery.values());
+	private final JPanel historyResults = new JPanel(new DynamicGridLayout(0, 1));
+	private final JPanel locationResults = new JPanel(new DynamicGridLayout(0, 1));
+
+	// Item locations are only looked up for name filters at least this long
+	private static final int MIN_LOCATION_QUERY_LENGTH = 2;
+	private static final int MAX_LOCATION_ITEMS = 5;
+
+	// How long the panel stays hidden before its rows are released
+	private static final int RELEASE_DELAY_MS = 60_000;
+
+	// The panel's contents are only built the first time it is shown
+	private boolean built;
+	// Whether the panel is currently shown in the sidebar
+	private boolean active;
+	// Whether items arrived while hidden that have not been applied yet
+	private boolean dirty;
+	// Whether the rows were released after being hidden for a while
+	private boolean released;
+	private boolean updatingTags;
+	private final Timer releaseTimer = new Timer(RELEASE_DELAY_MS, e -> releaseRows());
 
 	BankInformationPanel(BankInformationPlugin plugin)
 	{
@@ -83,26 +115,155 @@ class BankInformationPanel extends PluginPanel
 		setBorder(null);
 		setLayout(new DynamicGridLayout(0, 1));
 
+		releaseTimer.setRepeats(false);
+	}
+
+	@Override
+	public void onActivate()
+	{
+		active = true;
+		releaseTimer.stop();
+
+		if (!built)
+		{
+			build();
+			return;
+		}
+
+		if (released)
+		{
+			updateLocations();
+		}
+		if (dirty || released)
+		{
+			apply();
+		}
+		updateHistory();
+	}
+
+	@Override
+	public void onDeactivate()
+	{
+		active = false;
+		releaseTimer.restart();
+	}
+
+	/**
+	 * Stops the panel's timer, once the plugin has removed the panel.
+	 */
+	void shutDown()
+	{
+		active = false;
+		releaseTimer.stop();
+	}
+
+	/**
+	 * Sets the latest bank contents. While the panel is hidden they are only stored, and
+	 * applied once it is shown again.
+	 */
+	void update(BankSnapshot snapshot, List<String> tags, Map<GroupBy, List<GroupTotal>> groupTotals)
+	{
+		this.snapshot = snapshot;
+		this.cachedItems = snapshot.getItems();
+		this.bankTags = tags;
+		this.groupTotals = groupTotals;
+
+		if (active && built)
+		{
+			apply();
+		}
+		else
+		{
+			dirty = true;
+		}
+	}
+
+	private void apply()
+	{
+		dirty = false;
+		released = false;
+		setTags(bankTags);
+		updateBankTotal();
+		updateFilterTotal();
+		populate();
+	}
+
+	/**
+	 * Drops the row and result components of a panel that has been hidden for a while,
+	 * keeping only the items they are built from.
+	 */
+	private void releaseRows()
+	{
+		if (active)
+		{
+			return;
+		}
+
+		rows.clear();
+		groupRows.clear();
+		listContainer.removeAll();
+		historyResults.removeAll();
+		locationResults.removeAll();
+		released = true;
+	}
+
+	private void build()
+	{
+		final long start = System.nanoTime();
+
 		JPanel headerContainer = buildHeader();
 
-		listContainer.setLayout(new GridLayout(0, 1));
+		listContainer.setLayout(new DynamicGridLayout(0, 1));
 
 		totalValuePanel = buildTotalValueBox();
-		updateBankTotal();
 		filteredValuePanel = buildFilteredValueBox();
-		updateFilterTotal();
 
 		add(totalValuePanel);
 		add(filteredValuePanel);
 		add(buildFilterByNameBox());
+		add(locationResults);
 		add(buildFilterByTagBox());
+		add(buildGroupByBox());
+		add(buildHistoryBox());
+		add(historyResults);
 		add(headerContainer);
 		add(listContainer);
+
+		built = true;
+		apply();
+		revalidate();
+
+		log.debug("Bank information panel built in {}ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
 	}
 
 	void updateList()
 	{
-		rows.sort((r1, r2) ->
+		listContainer.removeAll();
+
+		if (getGroupBy() != GroupBy.NONE)
+		{
+			groupRows.sort(groupComparator());
+			groupRows.forEach(listContainer::add);
+		}
+		else
+		{
+			rows.sort(rowComparator());
+
+			for (int i = 0; i < rows.size(); i++)
+			{
+				BankInformationTableRow row = rows.get(i);
+				row.setBackground(i % 2 == 0 ? ODD_ROW : ColorScheme.DARK_GRAY_COLOR);
+				listContainer.add(row);
+			}
+		}
+
+		listContainer.revalidate();
+		listContainer.repaint();
+	}
+
+	private Comparator<BankInformationTableRow> rowComparator()
+	{
+		return (r1, r2) ->
 		{
 			switch (orderIndex)
 			{
@@ -115,30 +276,39 @@ class BankInformationPanel extends PluginPanel
 				default:
 					return 0;
 			}
-		});
-
-		listContainer.removeAll();
+		};
+	}
 
-		for (int i = 0; i < rows.size(); i++)
+	private Comparator<BankInformationGroupRow> groupComparator()
+	{
+		return (g1, g2) ->
 		{
-			BankInformationTableRow row = rows.get(i);
-			row.setBackground(i % 2 == 0 ? ODD_ROW : ColorScheme.DARK_GRAY_COLOR);
-			listContainer.add(row);
-		}
-
-		listContainer.revalidate();
-		listContainer.repaint();
+			switch (orderIndex)
+			{
+				case NAME:
+					return g1.getGroup().getName().compareTo(g2.getGroup().getName()) * (ascendingOrder ? 1 : -1);
+				case COUNT:
+					return Integer.compare(g1.getGroup().getCount(), g2.getGroup().getCount()) * (ascendingOrder ? 1 : -1);
+				case VALUE:
+					return Long.compare(g1.getGroup().getValue(), g2.getGroup().getValue()) * (ascendingOrder ? 1 : -1);
+				default:
+					return 0;
+			}
+		};
 	}
 
 	List<CachedItem> getFilteredValues()
 	{
 		List<CachedItem> filteredValues = new ArrayList<>();
 
-		for (CachedItem item : cachedItems)
+		// The snapshot's tag index already holds the items of the selected tag
+		final String selectedTag = getSelectedTag();
+		final List<CachedItem> candidates = selectedTag.isEmpty() ? cachedItems : snapshot.getItemsWithTag(selectedTag);
+		final String lowerFilter = filterString.toLowerCase();
+
+		for (CachedItem item : candidates)
 		{
-			String selectedTag = String.valueOf(bankTagsComboBox.getSelectedItem());
-			boolean tagFilter = selectedTag.equals("") || item.getTags().contains(String.valueOf(bankTagsComboBox.getSelectedItem()));
-			if (tagFilter && item.getName().toLowerCase().contains(filterString.toLowerCase()))
+			if (item.getName().toLowerCase().contains(lowerFilter))
 			{
 				filteredValues.add(item);
 			}
@@ -146,9 +316,58 @@ class BankInformationPanel extends PluginPanel
 		return filteredValues;
 	}
 
+	private String getSelectedTag()
+	{
+		final Object selectedTag = bankTagsComboBox.getSelectedItem();
+		return selectedTag != null ? selectedTag.toString() : "";
+	}
+
+	private boolean isFiltered()
+	{
+		return !filterString.isEmpty() || !getSelectedTag().isEmpty();
+	}
+
+	void setNameFilter(String filter)
+	{
+		filterString = filter;
+		if (!built)
+		{
+			return;
+		}
+
+		populate();
+		updateFilterTotal();
+		updateLocations();
+	}
+
 	void populate()
 	{
+		if (!built)
+		{
+			return;
+		}
+
 		rows.clear();
+		groupRows.clear();
+
+		final GroupBy groupBy = getGroupBy();
+		if (groupBy != GroupBy.NONE)
+		{
+			// The running totals cover the whole bank, so a filtered view totals its own items,
+			// which also leaves out the groups without any matching item
+			final List<GroupTotal> groups = isFiltered()
+				? GroupAggregator.totalsOf(groupBy, getFilteredValues())
+				: groupTotals.getOrDefault(groupBy, new ArrayList<>());
+			for (GroupTotal group : groups)
+			{
+				groupRows.add(new BankInformationGroupRow(group, expandedGroups.contains(group.getName()),
+					() -> buildGroupItems(groupBy, group.getName()),
+					() -> toggleGroup(group.getName())));
+			}
+
+			updateList();
+			return;
+		}
 
 		List<CachedItem> cachedItems = getFilteredValues();
 
@@ -160,22 +379,18 @@ class BankInformationPanel extends PluginPanel
 		updateList();
 	}
 
-	void setItems(List<CachedItem> items)
-	{
-		this.cachedItems = items;
-		updateBankTotal();
-		updateFilterTotal();
-	}
-
-	public void setTags(List<String> bankTags)
+	private void setTags(List<String> bankTags)
 	{
 		this.bankTags = bankTags;
 
+		// Refilling the combo box fires selection events, which must not repopulate the list
+		updatingTags = true;
 		String currentSelectedItem = String.valueOf(bankTagsComboBox.getSelectedItem());
 		bankTagsComboBox.removeAllItems();
 		bankTagsComboBox.addItem("");
 		bankTags.forEach(bankTagsComboBox::addItem);
 		bankTagsComboBox.getModel().setSelectedItem(!currentSelectedItem.equals("null") ? currentSelectedItem : "");
+		updatingTags = false;
 	}
 
 	private void orderBy(SortOrder order)
@@ -198,7 +413,55 @@ class BankInformationPanel extends PluginPanel
 		}
 
 		orderIndex = order;
-		updateList();
+		if (getGroupBy() != GroupBy.NONE)
+		{
+			// Expanded groups have to rebuild their item rows in the new order
+			populate();
+		}
+		else
+		{
+			updateList();
+		}
+	}
+
+	private GroupBy getGroupBy()
+	{
+		final GroupBy groupBy = (GroupBy) groupByComboBox.getSelectedItem();
+		return groupBy != null ? groupBy : GroupBy.NONE;
+	}
+
+	private void toggleGroup(String group)
+	{
+		if (!expandedGroups.remove(group))
+		{
+			expandedGroups.add(group);
+		}
+		listContainer.revalidate();
+	}
+
+	/**
+	 * Builds the item rows of a group, the first time the group is expanded.
+	 */
+	private JPanel buildGroupItems(GroupBy groupBy, String group)
+	{
+		final List<BankInformationTableRow> groupItems = new ArrayList<>();
+		for (CachedItem item : getFilteredValues())
+		{
+			if (groupBy.groupsOf(item).contains(group))
+			{
+				groupItems.add(buildRow(item, false));
+			}
+		}
+		groupItems.sort(rowComparator());
+
+		final JPanel container = new JPanel(new DynamicGridLayout(0, 1));
+		for (int i = 0; i < groupItems.size(); i++)
+		{
+			BankInformationTableRow row = groupItems.get(i);
+			row.setBackground(i % 2 == 0 ? ODD_ROW : ColorScheme.DARK_GRAY_COLOR);
+			container.add(row);
+		}
+		return container;
 	}
 
 	/**
@@ -300,7 +563,7 @@ class BankInformationPanel extends PluginPanel
 
 	private void updateBankTotal()
 	{
-		int totalValue = cachedItems.stream().map(item -> item.getValue() * item.getQuantity()).mapToInt(Integer::intValue).sum();
+		long totalValue = snapshot.getTotalValue();
 
 		String totalValueString = totalValue > 0 ? QuantityFormatter.quantityToStackSize(totalValue) : "Not loaded";
 		bankValueAmountLabel.setText(totalValueString);
@@ -309,7 +572,11 @@ class BankInformationPanel extends PluginPanel
 
 	private void updateFilterTotal()
 	{
-		int filteredValue = getFilteredValues().stream().map(item -> item.getValue() * item.getQuantity()).mapToInt(Integer::intValue).sum();
+		long filteredValue = 0;
+		for (CachedItem item : getFilteredValues())
+		{
+			filteredValue += (long) item.getValue() * item.getQuantity();
+		}
 		String filteredValueString = filteredValue > 0 ? QuantityFormatter.quantityToStackSize(filteredValue) : "Not loaded";
 		filteredValueAmountLabel.setText(filteredValueString);
 		filteredValuePanel.repaint();
@@ -330,9 +597,7 @@ class BankInformationPanel extends PluginPanel
 			@Override
 			public void keyTyped(KeyEvent e)
 			{
-				filterString = filterByNameInput.getText();
-				populate();
-				updateFilterTotal();
+				setNameFilter(filterByNameInput.getText());
 			}
 
 			@Override
@@ -360,8 +625,11 @@ class BankInformationPanel extends PluginPanel
 
 		final JLabel filterByTagLabel = new JLabel("Filter by tag: ");
 
-		bankTags.forEach(bankTagsComboBox::addItem);
 		bankTagsComboBox.addActionListener(e -> {
+			if (updatingTags)
+			{
+				return;
+			}
 			populate();
 			updateFilterTotal();
 		});
@@ -372,6 +640,114 @@ class BankInformationPanel extends PluginPanel
 		return filterPanel;
 	}
 
+	private JPanel buildGroupByBox()
+	{
+		BorderLayout layout = new BorderLayout(1, 1);
+		JPanel groupByPanel = new JPanel(layout);
+		groupByPanel.setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5));
+
+		final JLabel groupByLabel = new JLabel("Group by: ");
+
+		groupByComboBox.addActionListener(e -> {
+			expandedGroups.clear();
+			populate();
+		});
+
+		groupByPanel.add(groupByLabel, BorderLayout.LINE_START);
+		groupByPanel.add(groupByComboBox, BorderLayout.CENTER);
+
+		return groupByPanel;
+	}
+
+	private JPanel buildHistoryBox()
+	{
+		BorderLayout layout = new BorderLayout(1, 1);
+		JPanel historyPanel = new JPanel(layout);
+		historyPanel.setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5));
+
+		final JLabel historyLabel = new JLabel("History: ");
+
+		historyComboBox.addActionListener(e -> updateHistory());
+
+		historyPanel.add(historyLabel, BorderLayout.LINE_START);
+		historyPanel.add(historyComboBox, BorderLayout.CENTER);
+
+		return historyPanel;
+	}
+
+	/**
+	 * Runs the selected history query in the background and shows its results as a table.
+	 */
+	private void updateHistory()
+	{
+		final HistoryQuery query = (HistoryQuery) historyComboBox.getSelectedItem();
+		if (query == null || query == HistoryQuery.NONE)
+		{
+			showHistory(new ArrayList<>());
+			return;
+		}
+
+		plugin.queryHistory(query, cachedItems, historyRows -> SwingUtilities.invokeLater(() ->
+		{
+			// Drop results of a query that has since been deselected
+			if (historyComboBox.getSelectedItem() == query)
+			{
+				showHistory(historyRows);
+			}
+		}));
+	}
+
+	private void showHistory(List<HistoryRow> historyRows)
+	{
+		historyResults.removeAll();
+
+		for (int i = 0; i < historyRows.size(); i++)
+		{
+			final HistoryRow historyRow = historyRows.get(i);
+
+			final JLabel label = new JLabel(historyRow.getLabel());
+			label.setFont(FontManager.getRunescapeSmallFont());
+
+			final long change = historyRow.getChange();
+			final JLabel value = new JLabel((change > 0 ? "+" : "") + QuantityFormatter.quantityToStackSize(change));
+			value.setFont(FontManager.getRunescapeSmallFont());
+			value.setForeground(change < 0 ? ColorScheme.PROGRESS_ERROR_COLOR : ColorScheme.PROGRESS_COMPLETE_COLOR);
+
+			final JPanel row = new JPanel(new BorderLayout());
+			row.setBorder(BorderFactory.createEmptyBorder(2, 5, 2, 5));
+			row.setBackground(i % 2 == 0 ? ODD_ROW : ColorScheme.DARK_GRAY_COLOR);
+			row.add(label, BorderLayout.WEST);
+			row.add(value, BorderLayout.EAST);
+			historyResults.add(row);
+		}
+
+		historyResults.revalidate();
+		historyResults.repaint();
+	}
+
+	/**
+	 * Lists the accounts and containers holding the items matching the name filter.
+	 */
+	private void updateLocations()
+	{
+		locationResults.removeAll();
+
+		if (filterString.length() >= MIN_LOCATION_QUERY_LENGTH)
+		{
+			for (ItemLocation location : plugin.findItemLocations(filterString, MAX_LOCATION_ITEMS))
+			{
+				final JLabel label = new JLabel(location.getItemName() + ": " + location.getAccount() + ", "
+					+ location.getContainer() + " (" + QuantityFormatter.quantityToStackSize(location.getQuantity()) + ")");
+				label.setFont(FontManager.getRunescapeSmallFont());
+				label.setBorder(BorderFactory.createEmptyBorder(1, 5, 1, 5));
+				locationResults.add(label);
+			}
+		}
+
+		locationResults.revalidate();
+		locationResults.repaint();
+	}
+
 	/**
 	 * Builds a table row, that displays the bank's information.
 	 */
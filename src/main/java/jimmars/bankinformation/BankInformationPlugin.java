@@ -1,10 +1,20 @@
 package jimmars.bankinformation;
 
 import com.google.common.base.MoreObjects;
+import com.google.inject.Provides;
 import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import javax.inject.Inject;
 import javax.swing.SwingUtilities;
 import lombok.extern.slf4j.Slf4j;
@@ -12,10 +22,16 @@ import net.runelite.api.Client;
 import net.runelite.api.InventoryID;
 import net.runelite.api.Item;
 import net.runelite.api.ItemComposition;
+import net.runelite.api.Player;
 import net.runelite.api.events.ItemContainerChanged;
+import net.runelite.client.Notifier;
+import net.runelite.client.RuneLite;
+import net.runelite.client.callback.ClientThread;
 import net.runelite.client.config.ConfigManager;
+import net.runelite.client.events.ConfigChanged;
 import net.runelite.client.eventbus.Subscribe;
 import net.runelite.client.game.ItemManager;
+import net.runelite.client.input.KeyManager;
 import net.runelite.client.plugins.Plugin;
 import net.runelite.client.plugins.PluginDescriptor;
 import static net.runelite.client.plugins.banktags.BankTagsPlugin.CONFIG_GROUP;
@@ -23,6 +39,8 @@ import static net.runelite.client.plugins.banktags.BankTagsPlugin.TAG_TABS_CONFI
 import net.runelite.client.plugins.banktags.TagManager;
 import net.runelite.client.ui.ClientToolbar;
 import net.runelite.client.ui.NavigationButton;
+import net.runelite.client.ui.overlay.OverlayManager;
+import net.runelite.client.util.HotkeyListener;
 import net.runelite.client.util.ImageUtil;
 import net.runelite.client.util.Text;
 
@@ -33,6 +51,17 @@ import net.runelite.client.util.Text;
 @Slf4j
 public class BankInformationPlugin extends Plugin
 {
+	static final File DATA_DIR = new File(RuneLite.RUNELITE_DIR, "bank-information");
+	static final File SNAPSHOT_FILE = new File(DATA_DIR, "snapshot.bin");
+	static final File HISTORY_DIR = new File(DATA_DIR, "history");
+	static final File LOCATIONS_FILE = new File(DATA_DIR, "locations.dat");
+
+	static final String BANK_CONTAINER = "Bank";
+	static final String INVENTORY_CONTAINER = "Inventory";
+	static final String EQUIPMENT_CONTAINER = "Equipment";
+
+	private static final int LOCATIONS_SAVE_DELAY_SECONDS = 10;
+
 	@Inject
 	Client client;
 
@@ -48,12 +77,82 @@ public class BankInformationPlugin extends Plugin
 	@Inject
 	ConfigManager configManager;
 
+	@Inject
+	BankInformationConfig config;
+
+	@Inject
+	ScheduledExecutorService executor;
+
+	@Inject
+	BankSnapshotService snapshotService;
+
+	@Inject
+	ClientThread clientThread;
+
+	@Inject
+	Notifier notifier;
+
+	@Inject
+	OverlayManager overlayManager;
+
+	@Inject
+	KeyManager keyManager;
+
+	@Inject
+	BankSearchOverlay searchOverlay;
+
 	private BankInformationPanel panel;
 	private NavigationButton navButton;
+	// Guarded by this, as the file is opened on the executor and written on the client thread
+	private SnapshotFileWriter snapshotFileWriter;
+	private boolean exportSnapshot;
+
+	private final GroupAggregator groupAggregator = new GroupAggregator();
+	private final WatchRuleEngine watchRuleEngine = new WatchRuleEngine(groupAggregator, message -> notifier.notify(message));
+	private BankProcessor bankProcessor;
+
+	private ValueHistory valueHistory;
+	private ValueAnalytics valueAnalytics;
+	// Name of the logged in player, whose history is recorded and queried
+	private volatile String account;
+
+	private ItemLocationIndex itemLocationIndex;
+	// Account of the last bank added to the location index, to tell when deltas do not apply
+	private String lastIndexedBankAccount;
+	private ScheduledFuture<?> pendingLocationsSave;
+
+	private final HotkeyListener searchHotkeyListener = new HotkeyListener(() -> config.searchHotkey())
+	{
+		@Override
+		public void hotkeyPressed()
+		{
+			searchOverlay.toggle();
+		}
+	};
+
+	@Provides
+	BankInformationConfig provideConfig(ConfigManager configManager)
+	{
+		return configManager.getConfig(BankInformationConfig.class);
+	}
 
 	@Override
 	protected void startUp() throws Exception
 	{
+		final long start = System.nanoTime();
+
+		final List<WatchRule> rules = WatchRule.parseAll(config.watchRules());
+		clientThread.invokeLater(() -> watchRuleEngine.setRules(rules));
+		bankProcessor = new BankProcessor(snapshotService, groupAggregator, watchRuleEngine);
+		valueHistory = new ValueHistory(HISTORY_DIR);
+		valueAnalytics = new ValueAnalytics(valueHistory);
+
+		final ItemLocationIndex itemLocationIndex = new ItemLocationIndex();
+		this.itemLocationIndex = itemLocationIndex;
+		executor.execute(() -> loadLocations(itemLocationIndex));
+		setExportSnapshot(config.exportSnapshot());
+
+		// The panel builds its contents the first time it is shown
 		panel = new BankInformationPanel(this);
 
 		final BufferedImage icon = ImageUtil.loadImageResource(BankInformationPlugin.class, "panel_icon.png");
@@ -66,24 +165,109 @@ public class BankInformationPlugin extends Plugin
 			.build();
 
 		clientToolbar.addNavigation(navButton);
+		executor.execute(BankInformationTableHeader::preloadIcons);
+
+		overlayManager.add(searchOverlay);
+		// The hotkey listener goes first, as the open search consumes every key
+		keyManager.registerKeyListener(searchHotkeyListener);
+		keyManager.registerKeyListener(searchOverlay);
+
+		log.debug("Bank information started in {}us", TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
 	}
 
 	@Override
 	protected void shutDown() throws Exception
 	{
 		clientToolbar.removeNavigation(navButton);
+		panel.shutDown();
+		keyManager.unregisterKeyListener(searchHotkeyListener);
+		keyManager.unregisterKeyListener(searchOverlay);
+		overlayManager.remove(searchOverlay);
+		searchOverlay.close();
+		setExportSnapshot(false);
+		// The processor and the snapshot listeners are only used from the client thread
+		final BankProcessor bankProcessor = this.bankProcessor;
+		clientThread.invokeLater(() ->
+		{
+			bankProcessor.clear();
+			lastIndexedBankAccount = null;
+		});
+		clientThread.invokeLater(() -> watchRuleEngine.setRules(new ArrayList<>()));
+		valueAnalytics.shutdown();
+		account = null;
+
+		if (pendingLocationsSave != null)
+		{
+			pendingLocationsSave.cancel(false);
+			pendingLocationsSave = null;
+		}
+		final ItemLocationIndex itemLocationIndex = this.itemLocationIndex;
+		executor.execute(() -> saveLocations(itemLocationIndex));
+	}
+
+	@Subscribe
+	public void onConfigChanged(ConfigChanged event)
+	{
+		if (!event.getGroup().equals(BankInformationConfig.GROUP))
+		{
+			return;
+		}
+
+		if (event.getKey().equals("exportSnapshot"))
+		{
+			setExportSnapshot(config.exportSnapshot());
+		}
+
+		if (event.getKey().equals("watchRules"))
+		{
+			final List<WatchRule> rules = WatchRule.parseAll(config.watchRules());
+			clientThread.invokeLater(() -> watchRuleEngine.setRules(rules));
+		}
+	}
+
+	/**
+	 * Splits an item's bank tags configuration, dropping the empty tags left by an unset
+	 * configuration or stray commas.
+	 */
+	private static List<String> parseTags(String configuration)
+	{
+		if (configuration == null || configuration.isEmpty())
+		{
+			return Collections.emptyList();
+		}
+
+		final List<String> tags = new ArrayList<>();
+		for (String tag : configuration.split(","))
+		{
+			if (!tag.isEmpty())
+			{
+				tags.add(tag);
+			}
+		}
+		return Collections.unmodifiableList(tags);
 	}
 
 	@Subscribe
 	public void onItemContainerChanged(ItemContainerChanged event)
 	{
-		if (event.getContainerId() != InventoryID.BANK.getId())
+		final int containerId = event.getContainerId();
+		if (containerId == InventoryID.INVENTORY.getId() || containerId == InventoryID.EQUIPMENT.getId())
+		{
+			final String account = getAccountName();
+			if (account != null)
+			{
+				indexContainer(account, containerId == InventoryID.INVENTORY.getId() ? INVENTORY_CONTAINER : EQUIPMENT_CONTAINER,
+					event.getItemContainer().getItems());
+			}
+			return;
+		}
+
+		if (containerId != InventoryID.BANK.getId())
 		{
 			return;
 		}
 
 		final List<CachedItem> cachedItems = new ArrayList<>(event.getItemContainer().getItems().length);
-		final List<String> uniqueTags = new ArrayList<>();
 
 		for (Item item : event.getItemContainer().getItems())
 		{
@@ -91,26 +275,283 @@ public class BankInformationPlugin extends Plugin
 			{
 				continue;
 			}
-			String itemBankTags = configManager.getConfiguration(CONFIG_GROUP, "item_" + item.getId());
+			final List<String> itemBankTags = parseTags(configManager.getConfiguration(CONFIG_GROUP, "item_" + item.getId()));
+
+			int itemPrice = itemManager.getItemPrice(item.getId());
+			ItemComposition itemDefinition = client.getItemDefinition(item.getId());
+
+			cachedItems.add(new CachedItem(item.getId(), item.getQuantity(), itemDefinition.getName(), itemPrice, itemBankTags));
+		}
+
+		final BankUpdate update = bankProcessor.process(cachedItems);
+
+		writeSnapshotFile(cachedItems);
 
-			itemBankTags = itemBankTags != null ? itemBankTags : "";
-			Arrays.stream(itemBankTags.split(",")).forEach(tag -> {
-				if (!uniqueTags.contains(tag) && !tag.equals(""))
+		final String account = getAccountName();
+		if (account != null)
+		{
+			final ValueHistory valueHistory = this.valueHistory;
+			final long timestamp = System.currentTimeMillis();
+			this.account = account;
+			executor.execute(() -> recordHistory(valueHistory, account, cachedItems, timestamp));
+		}
+
+		if (account != null)
+		{
+			indexBank(account, update.getSnapshot(), update.getDeltas());
+		}
+		else
+		{
+			// The next bank's deltas skip this snapshot, so it has to replace the whole bank
+			lastIndexedBankAccount = null;
+		}
+
+		final List<String> tags = new ArrayList<>(update.getSnapshot().getTags());
+
+		SwingUtilities.invokeLater(() -> panel.update(update.getSnapshot(), tags, update.getGroupTotals()));
+	}
+
+	/**
+	 * Returns where the items whose name contains the query are held, across every container
+	 * and account seen so far.
+	 */
+	List<ItemLocation> findItemLocations(String query, int limit)
+	{
+		return itemLocationIndex.find(query, limit);
+	}
+
+	private String getAccountName()
+	{
+		final Player player = client.getLocalPlayer();
+		return player != null ? player.getName() : null;
+	}
+
+	private void indexBank(String account, BankSnapshot snapshot, List<ItemDelta> deltas)
+	{
+		final Map<Integer, Integer> quantities = new HashMap<>();
+		final Map<Integer, String> names = new HashMap<>();
+
+		// Deltas are relative to the previous bank, which only applies to the same account
+		if (!account.equals(lastIndexedBankAccount) || !itemLocationIndex.isLive(account, BANK_CONTAINER))
+		{
+			for (CachedItem item : snapshot.getItems())
+			{
+				quantities.put(item.getId(), item.getQuantity());
+				names.put(item.getId(), item.getName());
+			}
+			itemLocationIndex.setNames(names);
+			itemLocationIndex.replace(account, BANK_CONTAINER, quantities);
+			lastIndexedBankAccount = account;
+		}
+		else if (!deltas.isEmpty())
+		{
+			for (ItemDelta delta : deltas)
+			{
+				final CachedItem after = delta.getAfter();
+				quantities.put(delta.getId(), after != null ? after.getQuantity() : 0);
+				if (after != null)
 				{
-					uniqueTags.add(tag);
+					names.put(after.getId(), after.getName());
 				}
-			});
+			}
+			itemLocationIndex.setNames(names);
+			itemLocationIndex.update(account, BANK_CONTAINER, quantities);
+		}
+		else
+		{
+			return;
+		}
 
-			int itemPrice = itemManager.getItemPrice(item.getId());
-			ItemComposition itemDefinition = client.getItemDefinition(item.getId());
+		scheduleLocationsSave();
+	}
+
+	private void indexContainer(String account, String container, Item[] items)
+	{
+		final Map<Integer, Integer> quantities = new HashMap<>();
+		for (Item item : items)
+		{
+			if (item.getId() == -1 || item.getQuantity() <= 0)
+			{
+				continue;
+			}
+
+			final int id = itemManager.canonicalize(item.getId());
+			quantities.merge(id, item.getQuantity(), Integer::sum);
+			if (!itemLocationIndex.hasName(id))
+			{
+				itemLocationIndex.setName(id, client.getItemDefinition(id).getName());
+			}
+		}
+
+		itemLocationIndex.replace(account, container, quantities);
+		scheduleLocationsSave();
+	}
+
+	/**
+	 * Saves the location index a little while after it changes, so a burst of changes is
+	 * written only once.
+	 */
+	private void scheduleLocationsSave()
+	{
+		if (pendingLocationsSave != null && !pendingLocationsSave.isDone())
+		{
+			return;
+		}
 
-			cachedItems.add(new CachedItem(item.getId(), item.getQuantity(), itemDefinition.getName(), itemPrice, Arrays.asList(itemBankTags.split(","))));
+		final ItemLocationIndex itemLocationIndex = this.itemLocationIndex;
+		pendingLocationsSave = executor.schedule(() -> saveLocations(itemLocationIndex), LOCATIONS_SAVE_DELAY_SECONDS, TimeUnit.SECONDS);
+	}
+
+	private static void loadLocations(ItemLocationIndex itemLocationIndex)
+	{
+		try
+		{
+			itemLocationIndex.load(LOCATIONS_FILE);
 		}
+		catch (IOException e)
+		{
+			log.warn("Unable to load item locations", e);
+		}
+	}
 
-		SwingUtilities.invokeLater(() -> {
-			panel.setItems(cachedItems);
-			panel.setTags(uniqueTags);
-			panel.populate();
+	private static void saveLocations(ItemLocationIndex itemLocationIndex)
+	{
+		try
+		{
+			itemLocationIndex.save(LOCATIONS_FILE);
+		}
+		catch (IOException e)
+		{
+			log.warn("Unable to save item locations", e);
+		}
+	}
+
+	/**
+	 * Runs a history query on the analytics pool, and hands its rows to the callback from there.
+	 */
+	void queryHistory(HistoryQuery query, List<CachedItem> items, Consumer<List<HistoryRow>> callback)
+	{
+		final String account = this.account;
+		if (account == null)
+		{
+			callback.accept(new ArrayList<>());
+			return;
+		}
+
+		final LocalDate today = LocalDate.now();
+		valueAnalytics.aggregateAsync(account, HistoryQuery.from(today), today).whenComplete((aggregate, ex) ->
+		{
+			if (ex != null)
+			{
+				log.warn("Unable to query bank value history", ex);
+				callback.accept(new ArrayList<>());
+				return;
+			}
+
+			callback.accept(query.toRows(aggregate, items, today));
 		});
 	}
+
+	private static void recordHistory(ValueHistory valueHistory, String account, List<CachedItem> items, long timestamp)
+	{
+		try
+		{
+			valueHistory.record(account, items, timestamp);
+		}
+		catch (IOException e)
+		{
+			log.warn("Unable to record bank value history", e);
+		}
+	}
+
+	/**
+	 * Opens the snapshot file on the executor when enabled, so creating and mapping it never
+	 * blocks the client thread, or closes it when disabled.
+	 */
+	private synchronized void setExportSnapshot(boolean exportSnapshot)
+	{
+		this.exportSnapshot = exportSnapshot;
+		if (exportSnapshot)
+		{
+			executor.execute(this::openSnapshotFile);
+		}
+		else
+		{
+			closeSnapshotFile();
+		}
+	}
+
+	/**
+	 * Creates and maps the snapshot file outside the lock, so writes from the client thread
+	 * never wait on it.
+	 */
+	private void openSnapshotFile()
+	{
+		synchronized (this)
+		{
+			// The export may have been disabled again before this ran
+			if (!exportSnapshot || snapshotFileWriter != null)
+			{
+				return;
+			}
+		}
+
+		final SnapshotFileWriter writer;
+		try
+		{
+			writer = new SnapshotFileWriter(SNAPSHOT_FILE);
+		}
+		catch (IOException e)
+		{
+			log.warn("Unable to open bank snapshot file", e);
+			return;
+		}
+
+		synchronized (this)
+		{
+			if (exportSnapshot && snapshotFileWriter == null)
+			{
+				// Publish the bank seen before the file was opened
+				writer.write(snapshotService.getSnapshot().getItems());
+				snapshotFileWriter = writer;
+				return;
+			}
+		}
+
+		closeQuietly(writer);
+	}
+
+	/**
+	 * Writes the bank to the snapshot file, if it is open.
+	 */
+	private synchronized void writeSnapshotFile(List<CachedItem> cachedItems)
+	{
+		if (snapshotFileWriter != null)
+		{
+			snapshotFileWriter.write(cachedItems);
+		}
+	}
+
+	private synchronized void closeSnapshotFile()
+	{
+		if (snapshotFileWriter == null)
+		{
+			return;
+		}
+
+		closeQuietly(snapshotFileWriter);
+		snapshotFileWriter = null;
+	}
+
+	private static void closeQuietly(SnapshotFileWriter writer)
+	{
+		try
+		{
+			writer.close();
+		}
+		catch (IOException e)
+		{
+			log.debug("Unable to close bank snapshot file", e);
+		}
+	}
 }
@@ -46,24 +46,31 @@ import net.runelite.client.util.ImageUtil;
 
 class BankInformationTableHeader extends JPanel
 {
-	private static final ImageIcon ARROW_UP;
-	private static final ImageIcon HIGHLIGHT_ARROW_DOWN;
-	private static final ImageIcon HIGHLIGHT_ARROW_UP;
-
 	private static final Color ARROW_COLOR = ColorScheme.LIGHT_GRAY_COLOR;
 	private static final Color HIGHLIGHT_COLOR = ColorScheme.BRAND_ORANGE;
 
-	static
+	/**
+	 * Holds the arrow icons, so they are only decoded the first time a header is built or
+	 * {@link #preloadIcons()} is called, rather than when this class is loaded.
+	 */
+	private static class Icons
 	{
-		final BufferedImage arrowDown = ImageUtil.getResourceStreamFromClass(WorldHopperPlugin.class, "arrow_down.png");
-		final BufferedImage arrowUp = ImageUtil.rotateImage(arrowDown, Math.PI);
-		final BufferedImage arrowUpFaded = ImageUtil.luminanceOffset(arrowUp, -80);
-		ARROW_UP = new ImageIcon(arrowUpFaded);
-
-		final BufferedImage highlightArrowDown = ImageUtil.fillImage(arrowDown, HIGHLIGHT_COLOR);
-		final BufferedImage highlightArrowUp = ImageUtil.fillImage(arrowUp, HIGHLIGHT_COLOR);
-		HIGHLIGHT_ARROW_DOWN = new ImageIcon(highlightArrowDown);
-		HIGHLIGHT_ARROW_UP = new ImageIcon(highlightArrowUp);
+		private static final ImageIcon ARROW_UP;
+		private static final ImageIcon HIGHLIGHT_ARROW_DOWN;
+		private static final ImageIcon HIGHLIGHT_ARROW_UP;
+
+		static
+		{
+			final BufferedImage arrowDown = ImageUtil.getResourceStreamFromClass(WorldHopperPlugin.class, "arrow_down.png");
+			final BufferedImage arrowUp = ImageUtil.rotateImage(arrowDown, Math.PI);
+			final BufferedImage arrowUpFaded = ImageUtil.luminanceOffset(arrowUp, -80);
+			ARROW_UP = new ImageIcon(arrowUpFaded);
+
+			final BufferedImage highlightArrowDown = ImageUtil.fillImage(arrowDown, HIGHLIGHT_COLOR);
+			final BufferedImage highlightArrowUp = ImageUtil.fillImage(arrowUp, HIGHLIGHT_COLOR);
+			HIGHLIGHT_ARROW_DOWN = new ImageIcon(highlightArrowDown);
+			HIGHLIGHT_ARROW_UP = new ImageIcon(highlightArrowUp);
+		}
 	}
 
 	private final JLabel textLabel = new JLabel();
@@ -87,7 +94,7 @@ class BankInformationTableHeader extends JPanel
 				textLabel.setForeground(HIGHLIGHT_COLOR);
 				if (!ordering)
 				{
-					arrowLabel.setIcon(HIGHLIGHT_ARROW_UP);
+					arrowLabel.setIcon(Icons.HIGHLIGHT_ARROW_UP);
 				}
 			}
 
@@ -97,7 +104,7 @@ class BankInformationTableHeader extends JPanel
 				if (!ordering)
 				{
 					textLabel.setForeground(ARROW_COLOR);
-					arrowLabel.setIcon(ARROW_UP);
+					arrowLabel.setIcon(Icons.ARROW_UP);
 				}
 			}
 		});
@@ -111,6 +118,15 @@ class BankInformationTableHeader extends JPanel
 		add(arrowLabel, BorderLayout.EAST);
 	}
 
+	/**
+	 * Decodes the arrow icons ahead of time, so the first header built on the EDT
+	 * does not have to.
+	 */
+	static void preloadIcons()
+	{
+		Icons.ARROW_UP.getIconWidth();
+	}
+
 	/**
 	 * The labels inherit the parent's mouse listeners.
 	 */
@@ -129,7 +145,7 @@ class BankInformationTableHeader extends JPanel
 	public void highlight(boolean on, boolean ascending)
 	{
 		ordering = on;
-		arrowLabel.setIcon(on ? (ascending ? HIGHLIGHT_ARROW_DOWN : HIGHLIGHT_ARROW_UP) : ARROW_UP);
+		arrowLabel.setIcon(on ? (ascending ? Icons.HIGHLIGHT_ARROW_DOWN : Icons.HIGHLIGHT_ARROW_UP) : Icons.ARROW_UP);
 		textLabel.setForeground(on ? HIGHLIGHT_COLOR : ARROW_COLOR);
 	}
 
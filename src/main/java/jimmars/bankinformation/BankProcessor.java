@@ -0,0 +1,42 @@
+package jimmars.bankinformation;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Turns the items read from the bank container into a published snapshot, keeping the group
+ * totals and watch rules up to date from the deltas against the previous snapshot.
+ * <p>
+ * Must only be used from the client thread.
+ */
+class BankProcessor
+{
+	private final BankSnapshotService snapshotService;
+	private final GroupAggregator groupAggregator;
+	private final WatchRuleEngine watchRuleEngine;
+
+	BankProcessor(BankSnapshotService snapshotService, GroupAggregator groupAggregator, WatchRuleEngine watchRuleEngine)
+	{
+		this.snapshotService = snapshotService;
+		this.groupAggregator = groupAggregator;
+		this.watchRuleEngine = watchRuleEngine;
+	}
+
+	BankUpdate process(List<CachedItem> items)
+	{
+		final List<ItemDelta> deltas = ItemDelta.between(snapshotService.getSnapshot().getItemsById(), items);
+		groupAggregator.apply(deltas);
+		final Map<GroupBy, List<GroupTotal>> groupTotals = groupAggregator.getAllTotals();
+
+		final BankSnapshot snapshot = snapshotService.publish(items, deltas);
+		watchRuleEngine.apply(snapshot, deltas);
+
+		return new BankUpdate(snapshot, deltas, groupTotals);
+	}
+
+	void clear()
+	{
+		snapshotService.clear();
+		groupAggregator.clear();
+	}
+}
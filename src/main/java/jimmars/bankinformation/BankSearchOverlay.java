@@ -0,0 +1,327 @@
+package jimmars.bankinformation;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.event.KeyEvent;
+import java.awt.font.FontRenderContext;
+import java.awt.image.BufferedImage;
+import java.util.List;
+import javax.inject.Inject;
+import net.runelite.client.game.ItemManager;
+import net.runelite.client.input.KeyListener;
+import net.runelite.client.ui.FontManager;
+import net.runelite.client.ui.overlay.Overlay;
+import net.runelite.client.ui.overlay.OverlayLayer;
+import net.runelite.client.ui.overlay.OverlayPosition;
+import net.runelite.client.ui.overlay.OverlayPriority;
+import net.runelite.client.ui.overlay.components.ComponentConstants;
+import net.runelite.client.util.QuantityFormatter;
+
+/**
+ * Searches the latest bank snapshot from within the game, drawing the most valuable matches
+ * over the game canvas. Keys typed while the search is open edit the query instead of
+ * reaching the game.
+ * <p>
+ * Rendering runs every frame, so it only draws cached state: the matches are recomputed when
+ * the query or snapshot changes, and their text is formatted and measured once per change.
+ * Drawing a cached string reuses the glyphs Java2D caches for the font, and allocates nothing,
+ * unlike drawing a {@link java.awt.font.GlyphVector}. The translucent background is drawn from
+ * a cached image too, as filling it directly allocates a buffer on every draw.
+ */
+class BankSearchOverlay extends Overlay implements KeyListener
+{
+	static final int MAX_RESULTS = 8;
+
+	private static final int MAX_QUERY_LENGTH = 30;
+	private static final int PADDING = 6;
+	private static final int GAP = 6;
+	private static final int MIN_WIDTH = 160;
+	private static final int HEADER_HEIGHT = 18;
+	private static final int ICON_WIDTH = 36;
+	private static final int ROW_HEIGHT = 32;
+
+	private static final Color HEADER_COLOR = Color.ORANGE;
+	private static final Color TEXT_COLOR = Color.WHITE;
+	private static final Color VALUE_COLOR = Color.YELLOW;
+	private static final Color SHADOW_COLOR = Color.BLACK;
+
+	private final BankSnapshotService snapshotService;
+	private final ItemManager itemManager;
+	private final Font font = FontManager.getRunescapeFont();
+
+	// Written by the key listener and read by the renderer
+	private volatile boolean open;
+	private volatile String query = "";
+	// Set while the keystroke that opened the search is held, so its typed character is dropped
+	private volatile boolean opening;
+
+	// Lowercased names of the snapshot's items, built once per snapshot
+	private long namesVersion = -1;
+	private String[] lowerCaseNames = new String[0];
+
+	// The matches of the last query, most valuable first
+	private long matchedVersion = -1;
+	private String matchedQuery;
+	private final CachedItem[] matches = new CachedItem[MAX_RESULTS];
+	private final long[] matchValues = new long[MAX_RESULTS];
+	private int matchCount;
+	private boolean bankEmpty;
+
+	// Text of the matches and its layout, rebuilt when they change or the render context does
+	private boolean layoutStale = true;
+	private FontRenderContext layoutContext;
+	private String header;
+	private String status;
+	private final String[] values = new String[MAX_RESULTS];
+	private final int[] valueWidths = new int[MAX_RESULTS];
+	private final BufferedImage[] icons = new BufferedImage[MAX_RESULTS];
+	private int textAscent;
+	private BufferedImage background;
+
+	// Returned from every render, as the overlay renderer only reads it
+	private final Dimension size = new Dimension();
+
+	@Inject
+	BankSearchOverlay(BankSnapshotService snapshotService, ItemManager itemManager)
+	{
+		this.snapshotService = snapshotService;
+		this.itemManager = itemManager;
+
+		setPosition(OverlayPosition.TOP_CENTER);
+		setLayer(OverlayLayer.ABOVE_WIDGETS);
+		setPriority(OverlayPriority.HIGH);
+	}
+
+	/**
+	 * Opens the search with an empty query, or closes it if it is open. The hotkey opens it
+	 * when its key is pressed, so the character typed by that same key is not added to the query.
+	 */
+	void toggle()
+	{
+		if (!open)
+		{
+			query = "";
+			opening = true;
+		}
+		open = !open;
+	}
+
+	void close()
+	{
+		open = false;
+	}
+
+	@Override
+	public Dimension render(Graphics2D graphics)
+	{
+		if (!open)
+		{
+			return null;
+		}
+
+		final BankSnapshot snapshot = snapshotService.getSnapshot();
+		final String query = this.query;
+		if (snapshot.getVersion() != matchedVersion || !query.equals(matchedQuery))
+		{
+			match(snapshot, query);
+		}
+
+		final FontRenderContext context = graphics.getFontRenderContext();
+		if (layoutStale || !context.equals(layoutContext))
+		{
+			layout(context, graphics.getFontMetrics(font));
+		}
+
+		graphics.drawImage(background, 0, 0, null);
+		graphics.setFont(font);
+
+		drawText(graphics, header, PADDING, PADDING + textAscent, HEADER_COLOR);
+
+		int y = PADDING + HEADER_HEIGHT;
+		if (status != null)
+		{
+			drawText(graphics, status, PADDING, y + textAscent, TEXT_COLOR);
+			return size;
+		}
+
+		final int textY = y + (ROW_HEIGHT + textAscent) / 2;
+		for (int i = 0; i < matchCount; i++)
+		{
+			if (icons[i] != null)
+			{
+				graphics.drawImage(icons[i], PADDING, y, null);
+			}
+
+			final int rowTextY = textY + i * ROW_HEIGHT;
+			drawText(graphics, matches[i].getName(), PADDING + ICON_WIDTH + GAP, rowTextY, TEXT_COLOR);
+			drawText(graphics, values[i], size.width - PADDING - valueWidths[i], rowTextY, VALUE_COLOR);
+			y += ROW_HEIGHT;
+		}
+
+		return size;
+	}
+
+	/**
+	 * Finds the most valuable items whose name contains the query.
+	 */
+	private void match(BankSnapshot snapshot, String query)
+	{
+		final List<CachedItem> items = snapshot.getItems();
+		if (snapshot.getVersion() != namesVersion)
+		{
+			lowerCaseNames = new String[items.size()];
+			for (int i = 0; i < lowerCaseNames.length; i++)
+			{
+				lowerCaseNames[i] = items.get(i).getName().toLowerCase();
+			}
+			namesVersion = snapshot.getVersion();
+		}
+
+		final String lowerCaseQuery = query.toLowerCase();
+		matchCount = 0;
+		for (int i = 0; i < lowerCaseNames.length; i++)
+		{
+			if (!lowerCaseNames[i].contains(lowerCaseQuery))
+			{
+				continue;
+			}
+
+			final CachedItem item = items.get(i);
+			final long value = (long) item.getValue() * item.getQuantity();
+			if (matchCount == MAX_RESULTS && value <= matchValues[MAX_RESULTS - 1])
+			{
+				continue;
+			}
+
+			// Insert into the sorted matches, dropping the least valuable when they are full
+			int position = Math.min(matchCount, MAX_RESULTS - 1);
+			while (position > 0 && matchValues[position - 1] < value)
+			{
+				matches[position] = matches[position - 1];
+				matchValues[position] = matchValues[position - 1];
+				position--;
+			}
+			matches[position] = item;
+			matchValues[position] = value;
+			matchCount = Math.min(matchCount + 1, MAX_RESULTS);
+		}
+
+		for (int i = 0; i < MAX_RESULTS; i++)
+		{
+			icons[i] = i < matchCount
+				? itemManager.getImage(matches[i].getId(), matches[i].getQuantity(), matches[i].getQuantity() > 1)
+				: null;
+		}
+
+		bankEmpty = items.isEmpty();
+		matchedVersion = snapshot.getVersion();
+		matchedQuery = query;
+		layoutStale = true;
+	}
+
+	/**
+	 * Formats and measures the text of the current matches, and sizes the overlay to fit it.
+	 */
+	private void layout(FontRenderContext context, FontMetrics metrics)
+	{
+		header = "Search bank: " + matchedQuery + "_";
+		status = matchCount == 0 ? (bankEmpty ? "Open your bank to search it" : "No matches") : null;
+		textAscent = metrics.getAscent();
+
+		int width = metrics.stringWidth(header);
+		if (status != null)
+		{
+			width = Math.max(width, metrics.stringWidth(status));
+		}
+
+		for (int i = 0; i < MAX_RESULTS; i++)
+		{
+			if (i >= matchCount)
+			{
+				values[i] = null;
+				continue;
+			}
+
+			values[i] = QuantityFormatter.quantityToStackSize(matchValues[i]);
+			valueWidths[i] = metrics.stringWidth(values[i]);
+			width = Math.max(width, ICON_WIDTH + GAP + metrics.stringWidth(matches[i].getName()) + GAP + valueWidths[i]);
+		}
+
+		size.width = Math.max(MIN_WIDTH, width + PADDING * 2);
+		size.height = PADDING + HEADER_HEIGHT + (matchCount == 0 ? HEADER_HEIGHT : matchCount * ROW_HEIGHT) + PADDING;
+
+		if (background == null || background.getWidth() != size.width || background.getHeight() != size.height)
+		{
+			background = new BufferedImage(size.width, size.height, BufferedImage.TYPE_INT_ARGB);
+			final Graphics2D backgroundGraphics = background.createGraphics();
+			backgroundGraphics.setColor(ComponentConstants.STANDARD_BACKGROUND_COLOR);
+			backgroundGraphics.fillRect(0, 0, size.width, size.height);
+			backgroundGraphics.dispose();
+		}
+
+		layoutContext = context;
+		layoutStale = false;
+	}
+
+	private static void drawText(Graphics2D graphics, String text, int x, int y, Color color)
+	{
+		graphics.setColor(SHADOW_COLOR);
+		graphics.drawString(text, x + 1, y + 1);
+		graphics.setColor(color);
+		graphics.drawString(text, x, y);
+	}
+
+	@Override
+	public void keyTyped(KeyEvent e)
+	{
+		if (!open)
+		{
+			return;
+		}
+
+		final char c = e.getKeyChar();
+		if (opening)
+		{
+			opening = false;
+		}
+		else if (c != KeyEvent.CHAR_UNDEFINED && !Character.isISOControl(c) && !e.isControlDown() && !e.isAltDown()
+			&& query.length() < MAX_QUERY_LENGTH)
+		{
+			query = query + c;
+		}
+		e.consume();
+	}
+
+	@Override
+	public void keyPressed(KeyEvent e)
+	{
+		if (!open)
+		{
+			return;
+		}
+
+		if (e.getKeyCode() == KeyEvent.VK_ESCAPE)
+		{
+			open = false;
+		}
+		else if (e.getKeyCode() == KeyEvent.VK_BACK_SPACE && !query.isEmpty())
+		{
+			query = query.substring(0, query.length() - 1);
+		}
+		e.consume();
+	}
+
+	@Override
+	public void keyReleased(KeyEvent e)
+	{
+		// Keys like F1 type no character, so the opening keystroke ends when any key is released
+		opening = false;
+		if (open)
+		{
+			e.consume();
+		}
+	}
+}
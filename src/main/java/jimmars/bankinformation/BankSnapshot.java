@@ -0,0 +1,112 @@
+package jimmars.bankinformation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import lombok.Getter;
+
+/**
+ * An immutable view of the bank at one point in time, with constant time lookups by item id
+ * and by bank tag. Snapshots are safe to share between threads.
+ */
+public final class BankSnapshot
+{
+	public static final BankSnapshot EMPTY = new BankSnapshot(0, Collections.emptyList());
+
+	/**
+	 * Increases with every snapshot published by {@link BankSnapshotService}.
+	 */
+	@Getter
+	private final long version;
+
+	@Getter
+	private final List<CachedItem> items;
+
+	/**
+	 * The value of the whole bank.
+	 */
+	@Getter
+	private final long totalValue;
+
+	private final Map<Integer, CachedItem> itemsById;
+	private final Map<String, List<CachedItem>> itemsByTag;
+
+	BankSnapshot(long version, List<CachedItem> items)
+	{
+		this.version = version;
+		this.items = Collections.unmodifiableList(items);
+
+		final Map<Integer, CachedItem> itemsById = new HashMap<>(items.size() * 2);
+		// Keeps tags in the order they are first seen in the bank
+		final Map<String, List<CachedItem>> itemsByTag = new LinkedHashMap<>();
+		long totalValue = 0;
+
+		for (CachedItem item : items)
+		{
+			itemsById.put(item.getId(), item);
+			totalValue += (long) item.getValue() * item.getQuantity();
+
+			for (String tag : item.getTags())
+			{
+				if (!tag.isEmpty())
+				{
+					itemsByTag.computeIfAbsent(tag, k -> new ArrayList<>()).add(item);
+				}
+			}
+		}
+
+		itemsByTag.replaceAll((tag, tagged) -> Collections.unmodifiableList(tagged));
+
+		this.itemsById = Collections.unmodifiableMap(itemsById);
+		this.itemsByTag = Collections.unmodifiableMap(itemsByTag);
+		this.totalValue = totalValue;
+	}
+
+	/**
+	 * Returns the banked item with the given id, or null if it is not banked.
+	 */
+	public CachedItem getItem(int id)
+	{
+		return itemsById.get(id);
+	}
+
+	public int getQuantity(int id)
+	{
+		final CachedItem item = itemsById.get(id);
+		return item != null ? item.getQuantity() : 0;
+	}
+
+	/**
+	 * Returns the value of the whole stack of the given item.
+	 */
+	public long getValue(int id)
+	{
+		final CachedItem item = itemsById.get(id);
+		return item != null ? (long) item.getValue() * item.getQuantity() : 0;
+	}
+
+	/**
+	 * Returns the banked items that have the given bank tag.
+	 */
+	public List<CachedItem> getItemsWithTag(String tag)
+	{
+		return itemsByTag.getOrDefault(tag, Collections.emptyList());
+	}
+
+	/**
+	 * Returns the bank tags used by any banked item.
+	 */
+	public Set<String> getTags()
+	{
+		return itemsByTag.keySet();
+	}
+
+	Map<Integer, CachedItem> getItemsById()
+	{
+		return itemsById;
+	}
+}
@@ -0,0 +1,18 @@
+package jimmars.bankinformation;
+
+import java.util.List;
+
+/**
+ * Receives every snapshot published by {@link BankSnapshotService}.
+ */
+public interface BankSnapshotListener
+{
+	/**
+	 * Called on the client thread after a new snapshot has been published, so implementations
+	 * must not block.
+	 *
+	 * @param snapshot the new snapshot
+	 * @param deltas   the items that changed since the previous snapshot
+	 */
+	void onSnapshotChanged(BankSnapshot snapshot, List<ItemDelta> deltas);
+}
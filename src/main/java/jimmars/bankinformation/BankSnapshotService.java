@@ -0,0 +1,83 @@
+package jimmars.bankinformation;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import javax.inject.Singleton;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Shares the bank contents read by {@link BankInformationPlugin} with other plugins, which can
+ * inject this service instead of reading and pricing the bank themselves.
+ * <p>
+ * Reads never block: the current snapshot is published with a single volatile write, and
+ * snapshots are immutable.
+ */
+@Singleton
+@Slf4j
+public class BankSnapshotService
+{
+	private final List<BankSnapshotListener> listeners = new CopyOnWriteArrayList<>();
+
+	private volatile BankSnapshot snapshot = BankSnapshot.EMPTY;
+
+	/**
+	 * Returns the latest snapshot, or {@link BankSnapshot#EMPTY} if the bank has not been
+	 * opened since the plugin started.
+	 */
+	public BankSnapshot getSnapshot()
+	{
+		return snapshot;
+	}
+
+	public void addListener(BankSnapshotListener listener)
+	{
+		listeners.add(listener);
+	}
+
+	public void removeListener(BankSnapshotListener listener)
+	{
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Publishes the items as the next snapshot, and notifies the listeners of the changed items.
+	 * Must only be called from one thread at a time.
+	 *
+	 * @return the published snapshot
+	 */
+	BankSnapshot publish(List<CachedItem> items, List<ItemDelta> deltas)
+	{
+		final BankSnapshot published = new BankSnapshot(snapshot.getVersion() + 1, items);
+		snapshot = published;
+		notifyListeners(published, deltas);
+		return published;
+	}
+
+	/**
+	 * Publishes an empty snapshot, reporting every banked item as removed.
+	 */
+	void clear()
+	{
+		final List<ItemDelta> deltas = ItemDelta.between(snapshot.getItemsById(), Collections.emptyList());
+		final BankSnapshot published = new BankSnapshot(snapshot.getVersion() + 1, Collections.emptyList());
+		snapshot = published;
+		notifyListeners(published, deltas);
+	}
+
+	private void notifyListeners(BankSnapshot published, List<ItemDelta> deltas)
+	{
+		final List<ItemDelta> unmodifiableDeltas = Collections.unmodifiableList(deltas);
+		for (BankSnapshotListener listener : listeners)
+		{
+			try
+			{
+				listener.onSnapshotChanged(published, unmodifiableDeltas);
+			}
+			catch (RuntimeException e)
+			{
+				log.warn("Bank snapshot listener {} failed", listener, e);
+			}
+		}
+	}
+}
@@ -0,0 +1,16 @@
+package jimmars.bankinformation;
+
+import java.util.List;
+import java.util.Map;
+import lombok.Value;
+
+/**
+ * The result of processing one change of the bank container.
+ */
+@Value
+class BankUpdate
+{
+	BankSnapshot snapshot;
+	List<ItemDelta> deltas;
+	Map<GroupBy, List<GroupTotal>> groupTotals;
+}
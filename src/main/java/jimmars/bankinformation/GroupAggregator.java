@@ -0,0 +1,124 @@
+package jimmars.bankinformation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the item count and value of every group, for every {@link GroupBy}, up to date
+ * from item deltas so switching views never has to rescan the bank.
+ */
+class GroupAggregator
+{
+	private final Map<GroupBy, Map<String, Totals>> groups = new EnumMap<>(GroupBy.class);
+
+	GroupAggregator()
+	{
+		for (GroupBy groupBy : GroupBy.values())
+		{
+			if (groupBy != GroupBy.NONE)
+			{
+				groups.put(groupBy, new HashMap<>());
+			}
+		}
+	}
+
+	void apply(Collection<ItemDelta> deltas)
+	{
+		for (ItemDelta delta : deltas)
+		{
+			for (Map.Entry<GroupBy, Map<String, Totals>> entry : groups.entrySet())
+			{
+				if (delta.getBefore() != null)
+				{
+					add(entry.getKey(), entry.getValue(), delta.getBefore(), -1);
+				}
+				if (delta.getAfter() != null)
+				{
+					add(entry.getKey(), entry.getValue(), delta.getAfter(), 1);
+				}
+			}
+		}
+	}
+
+	void clear()
+	{
+		groups.values().forEach(Map::clear);
+	}
+
+	List<GroupTotal> getTotals(GroupBy groupBy)
+	{
+		final Map<String, Totals> totals = groups.get(groupBy);
+		if (totals == null)
+		{
+			return new ArrayList<>();
+		}
+
+		final List<GroupTotal> result = new ArrayList<>(totals.size());
+		totals.forEach((name, total) -> result.add(new GroupTotal(name, total.count, total.value)));
+		return result;
+	}
+
+	/**
+	 * Returns the value of a single group, or 0 if no item belongs to it.
+	 */
+	long getValue(GroupBy groupBy, String group)
+	{
+		final Map<String, Totals> totals = groups.get(groupBy);
+		final Totals total = totals != null ? totals.get(group) : null;
+		return total != null ? total.value : 0;
+	}
+
+	/**
+	 * Returns the totals of every grouping, as immutable values that can be handed to the EDT.
+	 */
+	Map<GroupBy, List<GroupTotal>> getAllTotals()
+	{
+		final Map<GroupBy, List<GroupTotal>> result = new EnumMap<>(GroupBy.class);
+		for (GroupBy groupBy : groups.keySet())
+		{
+			result.put(groupBy, getTotals(groupBy));
+		}
+		return result;
+	}
+
+	/**
+	 * Totals the groups of the given items only, for views that filter the bank.
+	 */
+	static List<GroupTotal> totalsOf(GroupBy groupBy, Collection<CachedItem> items)
+	{
+		final Map<String, Totals> totals = new HashMap<>();
+		for (CachedItem item : items)
+		{
+			add(groupBy, totals, item, 1);
+		}
+
+		final List<GroupTotal> result = new ArrayList<>(totals.size());
+		totals.forEach((name, total) -> result.add(new GroupTotal(name, total.count, total.value)));
+		return result;
+	}
+
+	private static void add(GroupBy groupBy, Map<String, Totals> totals, CachedItem item, int sign)
+	{
+		final long value = (long) item.getValue() * item.getQuantity();
+		for (String group : groupBy.groupsOf(item))
+		{
+			final Totals total = totals.computeIfAbsent(group, k -> new Totals());
+			total.count += sign;
+			total.value += sign * value;
+			if (total.count == 0)
+			{
+				totals.remove(group);
+			}
+		}
+	}
+
+	private static class Totals
+	{
+		private int count;
+		private long value;
+	}
+}
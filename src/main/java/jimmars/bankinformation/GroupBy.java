@@ -0,0 +1,76 @@
+package jimmars.bankinformation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Enumerates the ways the bank list can be grouped.
+ */
+enum GroupBy
+{
+	NONE("None")
+		{
+			@Override
+			List<String> groupsOf(CachedItem item)
+			{
+				return Collections.emptyList();
+			}
+		},
+	TAG("Tag")
+		{
+			@Override
+			List<String> groupsOf(CachedItem item)
+			{
+				final List<String> groups = new ArrayList<>(item.getTags().size());
+				for (String tag : item.getTags())
+				{
+					if (!tag.isEmpty())
+					{
+						groups.add(tag);
+					}
+				}
+				return groups.isEmpty() ? Collections.singletonList(UNTAGGED) : groups;
+			}
+		},
+	PRICE_BAND("Price band")
+		{
+			@Override
+			List<String> groupsOf(CachedItem item)
+			{
+				final long value = (long) item.getValue() * item.getQuantity();
+				for (int i = 0; i < PRICE_BANDS.length; i++)
+				{
+					if (value < PRICE_BANDS[i])
+					{
+						return Collections.singletonList(PRICE_BAND_NAMES[i]);
+					}
+				}
+				return Collections.singletonList(PRICE_BAND_NAMES[PRICE_BANDS.length]);
+			}
+		};
+
+	static final String UNTAGGED = "Untagged";
+
+	private static final long[] PRICE_BANDS = {10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L};
+	private static final String[] PRICE_BAND_NAMES = {"Under 10k", "10k - 100k", "100k - 1m", "1m - 10m", "10m - 100m", "Over 100m"};
+
+	private final String name;
+
+	GroupBy(String name)
+	{
+		this.name = name;
+	}
+
+	/**
+	 * Returns the names of the groups the item belongs to. An item with several bank tags
+	 * belongs to each of their groups.
+	 */
+	abstract List<String> groupsOf(CachedItem item);
+
+	@Override
+	public String toString()
+	{
+		return name;
+	}
+}
@@ -0,0 +1,11 @@
+package jimmars.bankinformation;
+
+import lombok.Value;
+
+@Value
+class GroupTotal
+{
+	String name;
+	int count;
+	long value;
+}
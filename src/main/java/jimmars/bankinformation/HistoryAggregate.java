@@ -0,0 +1,114 @@
+package jimmars.bankinformation;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * The value changes over a range of days, merged from the per-day {@link SegmentAggregate}s.
+ */
+class HistoryAggregate
+{
+	static final HistoryAggregate EMPTY = new HistoryAggregate(new ArrayList<>(), new HashMap<>(), 0);
+
+	private final List<SegmentAggregate> days;
+	private final Map<Integer, Long> itemChanges;
+	private final long netChange;
+
+	private HistoryAggregate(List<SegmentAggregate> days, Map<Integer, Long> itemChanges, long netChange)
+	{
+		this.days = days;
+		this.itemChanges = itemChanges;
+		this.netChange = netChange;
+	}
+
+	static HistoryAggregate of(SegmentAggregate segment)
+	{
+		final List<SegmentAggregate> days = new ArrayList<>(1);
+		days.add(segment);
+		return new HistoryAggregate(days, segment.getItemChanges(), segment.getNetChange());
+	}
+
+	HistoryAggregate merge(HistoryAggregate other)
+	{
+		final List<SegmentAggregate> mergedDays = new ArrayList<>(days.size() + other.days.size());
+		mergedDays.addAll(days);
+		mergedDays.addAll(other.days);
+
+		// Copy the larger map, so merging stays linear in the size of the smaller one
+		final boolean larger = itemChanges.size() >= other.itemChanges.size();
+		final Map<Integer, Long> merged = new HashMap<>(larger ? itemChanges : other.itemChanges);
+		(larger ? other.itemChanges : itemChanges).forEach((id, change) -> merged.merge(id, change, Long::sum));
+
+		return new HistoryAggregate(mergedDays, merged, netChange + other.netChange);
+	}
+
+	long getNetChange()
+	{
+		return netChange;
+	}
+
+	/**
+	 * Returns the net change of each day that has history, in date order.
+	 */
+	TreeMap<LocalDate, Long> getDailyNetChange()
+	{
+		final TreeMap<LocalDate, Long> daily = new TreeMap<>();
+		for (SegmentAggregate day : days)
+		{
+			daily.merge(day.getDate(), day.getNetChange(), Long::sum);
+		}
+		return daily;
+	}
+
+	/**
+	 * Returns the items that gained the most value, as item id and value change, largest first.
+	 */
+	List<Map.Entry<Integer, Long>> getTopGainers(int limit)
+	{
+		final List<Map.Entry<Integer, Long>> entries = new ArrayList<>(itemChanges.entrySet());
+		entries.sort((a, b) -> Long.compare(b.getValue(), a.getValue()));
+		return entries.subList(0, Math.min(limit, entries.size()));
+	}
+
+	/**
+	 * Returns the value change of every tag on every day. Items with several tags count
+	 * towards each of them.
+	 */
+	Map<String, TreeMap<LocalDate, Long>> getTagChangeByDay(Function<Integer, Collection<String>> tagsOf)
+	{
+		final Map<String, TreeMap<LocalDate, Long>> result = new HashMap<>();
+		for (SegmentAggregate day : days)
+		{
+			day.getItemChanges().forEach((id, change) ->
+			{
+				for (String tag : tagsOf.apply(id))
+				{
+					result.computeIfAbsent(tag, k -> new TreeMap<>()).merge(day.getDate(), change, Long::sum);
+				}
+			});
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the total value change of every tag over the whole range.
+	 */
+	Map<String, Long> getTagChanges(Function<Integer, Collection<String>> tagsOf)
+	{
+		final Map<String, Long> result = new HashMap<>();
+		itemChanges.forEach((id, change) ->
+		{
+			for (String tag : tagsOf.apply(id))
+			{
+				result.merge(tag, change, Long::sum);
+			}
+		});
+		return result;
+	}
+}
@@ -0,0 +1,105 @@
+package jimmars.bankinformation;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Enumerates the value history queries shown in the panel. Every query covers the
+ * current month.
+ */
+enum HistoryQuery
+{
+	NONE("None"),
+	TOP_GAINERS("Top gainers this month"),
+	DAILY_CHANGE("Daily change this month"),
+	TAG_CHANGE("Change by tag this month"),
+	TAG_DAILY_CHANGE("Daily change by tag this month");
+
+	private static final int TOP_GAINERS_LIMIT = 20;
+	private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("MMM d");
+
+	private final String name;
+
+	HistoryQuery(String name)
+	{
+		this.name = name;
+	}
+
+	static LocalDate from(LocalDate today)
+	{
+		return today.withDayOfMonth(1);
+	}
+
+	/**
+	 * Turns the aggregate into table rows, using the current bank items for names and tags.
+	 */
+	List<HistoryRow> toRows(HistoryAggregate aggregate, List<CachedItem> items, LocalDate today)
+	{
+		final Map<Integer, CachedItem> itemsById = new HashMap<>(items.size() * 2);
+		items.forEach(item -> itemsById.put(item.getId(), item));
+
+		final List<HistoryRow> rows = new ArrayList<>();
+		switch (this)
+		{
+			case TOP_GAINERS:
+				for (Map.Entry<Integer, Long> entry : aggregate.getTopGainers(TOP_GAINERS_LIMIT))
+				{
+					final CachedItem item = itemsById.get(entry.getKey());
+					rows.add(new HistoryRow(item != null ? item.getName() : "Item " + entry.getKey(), entry.getValue()));
+				}
+				break;
+			case DAILY_CHANGE:
+				rows.add(new HistoryRow("Daily average", aggregate.getNetChange() / today.getDayOfMonth()));
+				aggregate.getDailyNetChange().descendingMap().forEach((date, change) ->
+					rows.add(new HistoryRow(DAY_FORMAT.format(date), change)));
+				break;
+			case TAG_CHANGE:
+				aggregate.getTagChanges(id -> tagsOf(itemsById.get(id))).forEach((tag, change) ->
+					rows.add(new HistoryRow(tag, change)));
+				rows.sort((a, b) -> Long.compare(b.getChange(), a.getChange()));
+				break;
+			case TAG_DAILY_CHANGE:
+				// Tags in the order of their change over the month, each with its days latest first
+				final Map<String, TreeMap<LocalDate, Long>> tagDays = aggregate.getTagChangeByDay(id -> tagsOf(itemsById.get(id)));
+				final List<String> tags = new ArrayList<>(tagDays.keySet());
+				tags.sort((a, b) -> Long.compare(sum(tagDays.get(b)), sum(tagDays.get(a))));
+				for (String tag : tags)
+				{
+					tagDays.get(tag).descendingMap().forEach((date, change) ->
+						rows.add(new HistoryRow(tag + ", " + DAY_FORMAT.format(date), change)));
+				}
+				break;
+			default:
+				break;
+		}
+		return rows;
+	}
+
+	private static long sum(Map<LocalDate, Long> days)
+	{
+		long sum = 0;
+		for (long change : days.values())
+		{
+			sum += change;
+		}
+		return sum;
+	}
+
+	private static Collection<String> tagsOf(CachedItem item)
+	{
+		return item != null ? GroupBy.TAG.groupsOf(item) : Collections.singletonList(GroupBy.UNTAGGED);
+	}
+
+	@Override
+	public String toString()
+	{
+		return name;
+	}
+}
@@ -0,0 +1,10 @@
+package jimmars.bankinformation;
+
+import lombok.Value;
+
+@Value
+class HistoryRow
+{
+	String label;
+	long change;
+}
@@ -0,0 +1,49 @@
+package jimmars.bankinformation;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import javax.annotation.Nullable;
+import lombok.Value;
+
+/**
+ * The change of a single item between two bank snapshots. {@code before} is null for items
+ * that were added, and {@code after} is null for items that were removed.
+ */
+@Value
+public class ItemDelta
+{
+	int id;
+	@Nullable
+	CachedItem before;
+	@Nullable
+	CachedItem after;
+
+	/**
+	 * Computes the deltas between the previous items, keyed by id, and the current items.
+	 * Items that are unchanged produce no delta.
+	 */
+	static List<ItemDelta> between(Map<Integer, CachedItem> previous, List<CachedItem> current)
+	{
+		final List<ItemDelta> deltas = new ArrayList<>();
+		final Map<Integer, CachedItem> removed = new HashMap<>(previous);
+
+		for (CachedItem item : current)
+		{
+			final CachedItem old = removed.remove(item.getId());
+			if (!Objects.equals(old, item))
+			{
+				deltas.add(new ItemDelta(item.getId(), old, item));
+			}
+		}
+
+		for (CachedItem item : removed.values())
+		{
+			deltas.add(new ItemDelta(item.getId(), item, null));
+		}
+
+		return deltas;
+	}
+}
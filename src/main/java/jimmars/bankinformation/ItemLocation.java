@@ -0,0 +1,16 @@
+package jimmars.bankinformation;
+
+import lombok.Value;
+
+/**
+ * A stack of an item held in a container of an account.
+ */
+@Value
+public class ItemLocation
+{
+	int itemId;
+	String itemName;
+	String account;
+	String container;
+	int quantity;
+}
@@ -0,0 +1,298 @@
+package jimmars.bankinformation;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import lombok.Value;
+
+/**
+ * Maps item ids to the accounts and containers holding them, so finding an item never has to
+ * open or scan the stored banks.
+ * <p>
+ * Containers seen this session are kept up to date, while those of other accounts are loaded
+ * from disk. The index is stored as big-endian binary:
+ * <pre>
+ * int   format version
+ * int   number of item names, followed by an int id and UTF name for each
+ * int   number of containers, followed for each by a UTF account, UTF container name,
+ *       int number of items, and an int id and int quantity per item
+ * </pre>
+ * All methods are thread safe.
+ */
+class ItemLocationIndex
+{
+	private static final int FORMAT_VERSION = 1;
+
+	private final Map<ContainerKey, Map<Integer, Integer>> containers = new HashMap<>();
+	private final Map<Integer, Set<ContainerKey>> locations = new HashMap<>();
+	private final Map<Integer, String> names = new HashMap<>();
+	// Containers updated this session, which a load from disk must not overwrite
+	private final Set<ContainerKey> live = new HashSet<>();
+
+	synchronized boolean isLive(String account, String container)
+	{
+		return live.contains(new ContainerKey(account, container));
+	}
+
+	synchronized boolean hasName(int itemId)
+	{
+		return names.containsKey(itemId);
+	}
+
+	synchronized void setName(int itemId, String name)
+	{
+		names.put(itemId, name);
+	}
+
+	synchronized void setNames(Map<Integer, String> itemNames)
+	{
+		names.putAll(itemNames);
+	}
+
+	/**
+	 * Replaces the whole contents of a container, given as item id to quantity.
+	 */
+	synchronized void replace(String account, String container, Map<Integer, Integer> quantities)
+	{
+		final ContainerKey key = new ContainerKey(account, container);
+		final Map<Integer, Integer> old = containers.remove(key);
+		if (old != null)
+		{
+			for (Integer id : old.keySet())
+			{
+				removeLocation(id, key);
+			}
+		}
+
+		live.add(key);
+		quantities.forEach((id, quantity) -> setQuantity(key, id, quantity));
+	}
+
+	/**
+	 * Applies the changed quantities of a live container. A quantity of 0 removes the item.
+	 */
+	synchronized void update(String account, String container, Map<Integer, Integer> changes)
+	{
+		final ContainerKey key = new ContainerKey(account, container);
+		live.add(key);
+		changes.forEach((id, quantity) -> setQuantity(key, id, quantity));
+	}
+
+	/**
+	 * Returns where the item is held, across all known accounts and containers.
+	 */
+	synchronized List<ItemLocation> getLocations(int itemId)
+	{
+		final List<ItemLocation> result = new ArrayList<>();
+		final Set<ContainerKey> keys = locations.get(itemId);
+		if (keys != null)
+		{
+			final String name = names.getOrDefault(itemId, "Item " + itemId);
+			for (ContainerKey key : keys)
+			{
+				result.add(new ItemLocation(itemId, name, key.getAccount(), key.getContainer(), containers.get(key).get(itemId)));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns where the items whose name contains the query are held, for at most
+	 * {@code limit} items.
+	 */
+	synchronized List<ItemLocation> find(String query, int limit)
+	{
+		final String lowerQuery = query.toLowerCase(Locale.ROOT);
+		final List<ItemLocation> result = new ArrayList<>();
+		int items = 0;
+
+		for (Map.Entry<Integer, String> entry : names.entrySet())
+		{
+			if (items >= limit)
+			{
+				break;
+			}
+
+			if (locations.containsKey(entry.getKey()) && entry.getValue().toLowerCase(Locale.ROOT).contains(lowerQuery))
+			{
+				result.addAll(getLocations(entry.getKey()));
+				items++;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Saves the index to the file. The index is copied under the lock and written outside it,
+	 * so updates are only blocked while copying.
+	 */
+	void save(File file) throws IOException
+	{
+		final Map<Integer, String> heldNames = new HashMap<>();
+		final Map<ContainerKey, Map<Integer, Integer>> savedContainers = new HashMap<>();
+		synchronized (this)
+		{
+			// Only names of items that are still held somewhere are worth keeping
+			for (Map.Entry<Integer, String> entry : names.entrySet())
+			{
+				if (locations.containsKey(entry.getKey()))
+				{
+					heldNames.put(entry.getKey(), entry.getValue());
+				}
+			}
+
+			for (Map.Entry<ContainerKey, Map<Integer, Integer>> container : containers.entrySet())
+			{
+				savedContainers.put(container.getKey(), new HashMap<>(container.getValue()));
+			}
+		}
+
+		final File parent = file.getParentFile();
+		if (parent != null && !parent.exists() && !parent.mkdirs())
+		{
+			throw new IOException("Unable to create " + parent);
+		}
+
+		final File temp = new File(file.getPath() + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp))))
+		{
+			out.writeInt(FORMAT_VERSION);
+
+			out.writeInt(heldNames.size());
+			for (Map.Entry<Integer, String> entry : heldNames.entrySet())
+			{
+				out.writeInt(entry.getKey());
+				out.writeUTF(entry.getValue());
+			}
+
+			out.writeInt(savedContainers.size());
+			for (Map.Entry<ContainerKey, Map<Integer, Integer>> container : savedContainers.entrySet())
+			{
+				out.writeUTF(container.getKey().getAccount());
+				out.writeUTF(container.getKey().getContainer());
+				out.writeInt(container.getValue().size());
+				for (Map.Entry<Integer, Integer> item : container.getValue().entrySet())
+				{
+					out.writeInt(item.getKey());
+					out.writeInt(item.getValue());
+				}
+			}
+		}
+
+		if (!temp.renameTo(file))
+		{
+			// Windows does not replace existing files on rename
+			if (!file.delete() || !temp.renameTo(file))
+			{
+				throw new IOException("Unable to replace " + file);
+			}
+		}
+	}
+
+	/**
+	 * Loads the index stored in the file, keeping the containers already updated this session.
+	 * The file is read before the index is locked, so updates are only blocked while merging.
+	 */
+	void load(File file) throws IOException
+	{
+		if (!file.exists())
+		{
+			return;
+		}
+
+		final Map<Integer, String> loadedNames = new HashMap<>();
+		final Map<ContainerKey, Map<Integer, Integer>> loadedContainers = new HashMap<>();
+
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file))))
+		{
+			if (in.readInt() != FORMAT_VERSION)
+			{
+				return;
+			}
+
+			final int nameCount = in.readInt();
+			for (int i = 0; i < nameCount; i++)
+			{
+				loadedNames.put(in.readInt(), in.readUTF());
+			}
+
+			final int containerCount = in.readInt();
+			for (int i = 0; i < containerCount; i++)
+			{
+				final ContainerKey key = new ContainerKey(in.readUTF(), in.readUTF());
+				final int itemCount = in.readInt();
+				final Map<Integer, Integer> items = new HashMap<>(itemCount * 2);
+				for (int j = 0; j < itemCount; j++)
+				{
+					items.put(in.readInt(), in.readInt());
+				}
+				loadedContainers.put(key, items);
+			}
+		}
+
+		synchronized (this)
+		{
+			loadedNames.forEach(names::putIfAbsent);
+			loadedContainers.forEach((key, items) ->
+			{
+				if (!live.contains(key) && !containers.containsKey(key))
+				{
+					items.forEach((id, quantity) -> setQuantity(key, id, quantity));
+				}
+			});
+		}
+	}
+
+	private void setQuantity(ContainerKey key, int id, int quantity)
+	{
+		if (quantity <= 0)
+		{
+			final Map<Integer, Integer> items = containers.get(key);
+			if (items != null && items.remove(id) != null)
+			{
+				removeLocation(id, key);
+				if (items.isEmpty())
+				{
+					containers.remove(key);
+				}
+			}
+			return;
+		}
+
+		containers.computeIfAbsent(key, k -> new HashMap<>()).put(id, quantity);
+		locations.computeIfAbsent(id, k -> new LinkedHashSet<>()).add(key);
+	}
+
+	private void removeLocation(int id, ContainerKey key)
+	{
+		final Set<ContainerKey> keys = locations.get(id);
+		if (keys != null)
+		{
+			keys.remove(key);
+			if (keys.isEmpty())
+			{
+				locations.remove(id);
+			}
+		}
+	}
+
+	@Value
+	private static class ContainerKey
+	{
+		String account;
+		String container;
+	}
+}
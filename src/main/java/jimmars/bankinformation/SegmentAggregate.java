@@ -0,0 +1,18 @@
+package jimmars.bankinformation;
+
+import java.time.LocalDate;
+import java.util.Map;
+import lombok.Value;
+
+/**
+ * The value changes recorded in one day's history segment.
+ */
+@Value
+class SegmentAggregate
+{
+	LocalDate date;
+	// Size of the segment when it was scanned, to notice records appended since
+	long length;
+	Map<Integer, Long> itemChanges;
+	long netChange;
+}
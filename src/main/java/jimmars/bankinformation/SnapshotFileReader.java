@@ -0,0 +1,220 @@
+package jimmars.bankinformation;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+/**
+ * Reads the snapshot file published by {@link SnapshotFileWriter}. This class has no
+ * dependencies outside the JDK so it can be copied into external tools as-is.
+ * <p>
+ * The file is little-endian and has a fixed size. It starts with a 64 byte header:
+ * <pre>
+ * offset  type  field
+ *      0  int   magic, 0x46494B42 ("BKIF")
+ *      4  int   layout version, currently 2
+ *      8  long  sequence, odd while the writer is updating the file
+ *     16  long  time of the last update, in epoch milliseconds
+ *     24  int   number of items in use
+ *     28  int   record capacity
+ *     32  long  total bank value
+ *     40  int   CRC32 of bytes 16 to 40 followed by the records in use
+ *     44        reserved
+ * </pre>
+ * followed by {@code capacity} records of 16 bytes each:
+ * <pre>
+ * offset  type  field
+ *      0  int   item id
+ *      4  int   quantity
+ *      8  int   price of a single item
+ *     12        reserved
+ * </pre>
+ * A reader copies the header and the records in use, and retries if the sequence was odd or
+ * changed while copying, or if the copy does not match its checksum. Plain reads of the mapping
+ * can be reordered around the reads of the sequence, so the checksum is what detects a copy
+ * torn by a concurrent update.
+ */
+public class SnapshotFileReader implements AutoCloseable
+{
+	public static final int MAGIC = 0x46494B42;
+	public static final int LAYOUT_VERSION = 2;
+	public static final int HEADER_SIZE = 64;
+	public static final int RECORD_SIZE = 16;
+	public static final int CAPACITY = 2048;
+	public static final int FILE_SIZE = HEADER_SIZE + CAPACITY * RECORD_SIZE;
+
+	static final int MAGIC_OFFSET = 0;
+	static final int VERSION_OFFSET = 4;
+	static final int SEQUENCE_OFFSET = 8;
+	static final int TIMESTAMP_OFFSET = 16;
+	static final int COUNT_OFFSET = 24;
+	static final int CAPACITY_OFFSET = 28;
+	static final int TOTAL_VALUE_OFFSET = 32;
+	static final int CHECKSUM_OFFSET = 40;
+	// The checksummed part of the header, from the timestamp up to the checksum
+	static final int CHECKSUMMED_HEADER_SIZE = CHECKSUM_OFFSET - TIMESTAMP_OFFSET;
+
+	private static final int MAX_ATTEMPTS = 1000;
+
+	private final RandomAccessFile file;
+	private final MappedByteBuffer buffer;
+
+	public SnapshotFileReader(File path) throws IOException
+	{
+		file = new RandomAccessFile(path, "r");
+		try
+		{
+			buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, FILE_SIZE);
+		}
+		catch (IOException e)
+		{
+			file.close();
+			throw e;
+		}
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+		if (buffer.getInt(MAGIC_OFFSET) != MAGIC || buffer.getInt(VERSION_OFFSET) != LAYOUT_VERSION)
+		{
+			file.close();
+			throw new IOException("Not a version " + LAYOUT_VERSION + " bank snapshot file: " + path);
+		}
+	}
+
+	/**
+	 * Copies a consistent view of the snapshot out of the file.
+	 *
+	 * @throws IOException if no consistent view could be read, which means the writer
+	 *                     is updating the file faster than it can be copied
+	 */
+	public Snapshot read() throws IOException
+	{
+		for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++)
+		{
+			final long before = buffer.getLong(SEQUENCE_OFFSET);
+			if ((before & 1) != 0)
+			{
+				Thread.yield();
+				continue;
+			}
+
+			final byte[] header = new byte[CHECKSUMMED_HEADER_SIZE];
+			copy(TIMESTAMP_OFFSET, header);
+			final int checksum = buffer.getInt(CHECKSUM_OFFSET);
+
+			final ByteBuffer headerCopy = ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN);
+			final int count = Math.min(Math.max(headerCopy.getInt(COUNT_OFFSET - TIMESTAMP_OFFSET), 0), CAPACITY);
+			final byte[] records = new byte[count * RECORD_SIZE];
+			copy(HEADER_SIZE, records);
+
+			if (buffer.getLong(SEQUENCE_OFFSET) != before || checksum(header, records) != checksum)
+			{
+				continue;
+			}
+
+			final ByteBuffer recordsCopy = ByteBuffer.wrap(records).order(ByteOrder.LITTLE_ENDIAN);
+			final int[] ids = new int[count];
+			final int[] quantities = new int[count];
+			final int[] prices = new int[count];
+			for (int i = 0; i < count; i++)
+			{
+				final int offset = i * RECORD_SIZE;
+				ids[i] = recordsCopy.getInt(offset);
+				quantities[i] = recordsCopy.getInt(offset + 4);
+				prices[i] = recordsCopy.getInt(offset + 8);
+			}
+
+			return new Snapshot(before, headerCopy.getLong(0), headerCopy.getLong(TOTAL_VALUE_OFFSET - TIMESTAMP_OFFSET),
+				ids, quantities, prices);
+		}
+
+		throw new IOException("Snapshot file kept changing while being read");
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		file.close();
+	}
+
+	private void copy(int offset, byte[] destination)
+	{
+		final ByteBuffer source = buffer.duplicate();
+		source.position(offset);
+		source.get(destination);
+	}
+
+	/**
+	 * Computes the checksum stored in the header, over the checksummed part of the header
+	 * and the records in use.
+	 */
+	static int checksum(byte[] header, byte[] records)
+	{
+		final CRC32 crc = new CRC32();
+		crc.update(header);
+		crc.update(records);
+		return (int) crc.getValue();
+	}
+
+	/**
+	 * A copy of the snapshot file at one sequence number.
+	 */
+	public static class Snapshot
+	{
+		private final long sequence;
+		private final long timestamp;
+		private final long totalValue;
+		private final int[] ids;
+		private final int[] quantities;
+		private final int[] prices;
+
+		Snapshot(long sequence, long timestamp, long totalValue, int[] ids, int[] quantities, int[] prices)
+		{
+			this.sequence = sequence;
+			this.timestamp = timestamp;
+			this.totalValue = totalValue;
+			this.ids = ids;
+			this.quantities = quantities;
+			this.prices = prices;
+		}
+
+		public long getSequence()
+		{
+			return sequence;
+		}
+
+		public long getTimestamp()
+		{
+			return timestamp;
+		}
+
+		public long getTotalValue()
+		{
+			return totalValue;
+		}
+
+		public int size()
+		{
+			return ids.length;
+		}
+
+		public int getId(int index)
+		{
+			return ids[index];
+		}
+
+		public int getQuantity(int index)
+		{
+			return quantities[index];
+		}
+
+		public int getPrice(int index)
+		{
+			return prices[index];
+		}
+	}
+}
@@ -0,0 +1,165 @@
+package jimmars.bankinformation;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import static jimmars.bankinformation.SnapshotFileReader.CAPACITY;
+import static jimmars.bankinformation.SnapshotFileReader.CAPACITY_OFFSET;
+import static jimmars.bankinformation.SnapshotFileReader.CHECKSUMMED_HEADER_SIZE;
+import static jimmars.bankinformation.SnapshotFileReader.CHECKSUM_OFFSET;
+import static jimmars.bankinformation.SnapshotFileReader.COUNT_OFFSET;
+import static jimmars.bankinformation.SnapshotFileReader.FILE_SIZE;
+import static jimmars.bankinformation.SnapshotFileReader.HEADER_SIZE;
+import static jimmars.bankinformation.SnapshotFileReader.LAYOUT_VERSION;
+import static jimmars.bankinformation.SnapshotFileReader.MAGIC;
+import static jimmars.bankinformation.SnapshotFileReader.MAGIC_OFFSET;
+import static jimmars.bankinformation.SnapshotFileReader.RECORD_SIZE;
+import static jimmars.bankinformation.SnapshotFileReader.SEQUENCE_OFFSET;
+import static jimmars.bankinformation.SnapshotFileReader.TIMESTAMP_OFFSET;
+import static jimmars.bankinformation.SnapshotFileReader.TOTAL_VALUE_OFFSET;
+import static jimmars.bankinformation.SnapshotFileReader.VERSION_OFFSET;
+
+/**
+ * Publishes bank snapshots to a memory-mapped file, see {@link SnapshotFileReader} for the layout.
+ * The sequence number is made odd before the records are rewritten and even again afterwards,
+ * so readers can detect and retry torn reads without any locking. The checksum in the header is
+ * updated before the sequence is made even again, for readers to verify their copy against.
+ */
+class SnapshotFileWriter implements AutoCloseable
+{
+	private final RandomAccessFile file;
+	private final MappedByteBuffer buffer;
+
+	private long sequence;
+	private int[] lastIds = new int[0];
+	private int[] lastQuantities = new int[0];
+	private int[] lastPrices = new int[0];
+
+	SnapshotFileWriter(File path) throws IOException
+	{
+		final File parent = path.getParentFile();
+		if (parent != null && !parent.exists() && !parent.mkdirs())
+		{
+			throw new IOException("Unable to create " + parent);
+		}
+
+		file = new RandomAccessFile(path, "rw");
+		try
+		{
+			file.setLength(FILE_SIZE);
+			buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, FILE_SIZE);
+		}
+		catch (IOException e)
+		{
+			file.close();
+			throw e;
+		}
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+		// Continue past the sequence of an older file, so its readers see the reset. An odd
+		// sequence is left by a writer that stopped while updating the file.
+		final long odd = buffer.getInt(MAGIC_OFFSET) == MAGIC ? buffer.getLong(SEQUENCE_OFFSET) | 1 : 1;
+		buffer.putLong(SEQUENCE_OFFSET, odd);
+
+		buffer.putInt(MAGIC_OFFSET, MAGIC);
+		buffer.putInt(VERSION_OFFSET, LAYOUT_VERSION);
+		writeContents(new byte[0], 0, 0);
+
+		sequence = odd + 1;
+		buffer.putLong(SEQUENCE_OFFSET, sequence);
+	}
+
+	/**
+	 * Writes the items to the file, unless they are identical to the last written items.
+	 * Items past the record capacity are left out.
+	 *
+	 * @return whether the file was updated
+	 */
+	boolean write(List<CachedItem> items)
+	{
+		final int count = Math.min(items.size(), CAPACITY);
+		if (!changed(items, count))
+		{
+			return false;
+		}
+
+		final int[] ids = new int[count];
+		final int[] quantities = new int[count];
+		final int[] prices = new int[count];
+		final byte[] records = new byte[count * RECORD_SIZE];
+		final ByteBuffer recordBuffer = ByteBuffer.wrap(records).order(ByteOrder.LITTLE_ENDIAN);
+		long totalValue = 0;
+		for (int i = 0; i < count; i++)
+		{
+			final CachedItem item = items.get(i);
+			ids[i] = item.getId();
+			quantities[i] = item.getQuantity();
+			prices[i] = item.getValue();
+			totalValue += (long) item.getValue() * item.getQuantity();
+
+			recordBuffer.putInt(i * RECORD_SIZE, ids[i]);
+			recordBuffer.putInt(i * RECORD_SIZE + 4, quantities[i]);
+			recordBuffer.putInt(i * RECORD_SIZE + 8, prices[i]);
+		}
+
+		buffer.putLong(SEQUENCE_OFFSET, sequence + 1);
+		writeContents(records, totalValue, System.currentTimeMillis());
+		sequence += 2;
+		buffer.putLong(SEQUENCE_OFFSET, sequence);
+
+		lastIds = ids;
+		lastQuantities = quantities;
+		lastPrices = prices;
+		return true;
+	}
+
+	/**
+	 * Writes the records and the header fields describing them, followed by their checksum.
+	 */
+	private void writeContents(byte[] records, long totalValue, long timestamp)
+	{
+		final byte[] header = new byte[CHECKSUMMED_HEADER_SIZE];
+		final ByteBuffer headerBuffer = ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN);
+		// The checksummed header starts at the timestamp
+		headerBuffer.putLong(0, timestamp);
+		headerBuffer.putInt(COUNT_OFFSET - TIMESTAMP_OFFSET, records.length / RECORD_SIZE);
+		headerBuffer.putInt(CAPACITY_OFFSET - TIMESTAMP_OFFSET, CAPACITY);
+		headerBuffer.putLong(TOTAL_VALUE_OFFSET - TIMESTAMP_OFFSET, totalValue);
+
+		final ByteBuffer target = buffer.duplicate();
+		target.position(HEADER_SIZE);
+		target.put(records);
+		target.position(TIMESTAMP_OFFSET);
+		target.put(header);
+		buffer.putInt(CHECKSUM_OFFSET, SnapshotFileReader.checksum(header, records));
+	}
+
+	private boolean changed(List<CachedItem> items, int count)
+	{
+		if (count != lastIds.length)
+		{
+			return true;
+		}
+
+		for (int i = 0; i < count; i++)
+		{
+			final CachedItem item = items.get(i);
+			if (item.getId() != lastIds[i] || item.getQuantity() != lastQuantities[i] || item.getValue() != lastPrices[i])
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		file.close();
+	}
+}
@@ -0,0 +1,152 @@
+package jimmars.bankinformation;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Answers queries over {@link ValueHistory} by scanning its day segments in parallel on a
+ * fork-join pool and merging the per-segment aggregates. Aggregates of past days are cached,
+ * so repeated queries only rescan today's segment.
+ */
+class ValueAnalytics
+{
+	private final ValueHistory history;
+	private final ForkJoinPool pool;
+	private final Map<File, SegmentAggregate> closedSegments = new ConcurrentHashMap<>();
+
+	ValueAnalytics(ValueHistory history)
+	{
+		this(history, new ForkJoinPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1)));
+	}
+
+	ValueAnalytics(ValueHistory history, ForkJoinPool pool)
+	{
+		this.history = history;
+		this.pool = pool;
+	}
+
+	/**
+	 * Aggregates the account's history between {@code from} and {@code to}, inclusive,
+	 * on the analytics pool.
+	 */
+	CompletableFuture<HistoryAggregate> aggregateAsync(String account, LocalDate from, LocalDate to)
+	{
+		return CompletableFuture.supplyAsync(() -> aggregate(account, from, to), pool);
+	}
+
+	HistoryAggregate aggregate(String account, LocalDate from, LocalDate to)
+	{
+		final List<File> segments = history.getSegments(account, from, to);
+		if (segments.isEmpty())
+		{
+			return HistoryAggregate.EMPTY;
+		}
+
+		final LocalDate today = LocalDate.now();
+		final AggregateTask task = new AggregateTask(segments, today);
+		return ForkJoinTask.getPool() == pool ? task.invoke() : pool.invoke(task);
+	}
+
+	void shutdown()
+	{
+		pool.shutdownNow();
+		closedSegments.clear();
+	}
+
+	private SegmentAggregate aggregateSegment(File segment, LocalDate today) throws IOException
+	{
+		final LocalDate date = ValueHistory.segmentDate(segment);
+		final long length = segment.length();
+
+		final SegmentAggregate cached = closedSegments.get(segment);
+		if (cached != null && cached.getLength() == length)
+		{
+			return cached;
+		}
+
+		final SegmentAggregate aggregate = scan(segment, date, length);
+		if (date.isBefore(today))
+		{
+			closedSegments.put(segment, aggregate);
+		}
+		return aggregate;
+	}
+
+	/**
+	 * Scans the whole records of a segment, ignoring a partially written last record.
+	 */
+	static SegmentAggregate scan(File segment, LocalDate date, long length) throws IOException
+	{
+		final long records = length / ValueHistory.RECORD_SIZE;
+		final Map<Integer, Long> itemChanges = new HashMap<>();
+		long netChange = 0;
+
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(segment))))
+		{
+			for (long i = 0; i < records; i++)
+			{
+				in.readLong(); // timestamp
+				final int id = in.readInt();
+				in.readInt(); // quantity
+				in.readInt(); // price
+				final long change = in.readLong();
+
+				itemChanges.merge(id, change, Long::sum);
+				netChange += change;
+			}
+		}
+
+		// The file length, rather than the length scanned, is what the cache is checked against
+		return new SegmentAggregate(date, length, Collections.unmodifiableMap(itemChanges), netChange);
+	}
+
+	private class AggregateTask extends RecursiveTask<HistoryAggregate>
+	{
+		private final List<File> segments;
+		private final LocalDate today;
+
+		AggregateTask(List<File> segments, LocalDate today)
+		{
+			this.segments = segments;
+			this.today = today;
+		}
+
+		@Override
+		protected HistoryAggregate compute()
+		{
+			// A segment is the unit of work, either scanned or taken from the cache
+			if (segments.size() == 1)
+			{
+				try
+				{
+					return HistoryAggregate.of(aggregateSegment(segments.get(0), today));
+				}
+				catch (IOException e)
+				{
+					throw new UncheckedIOException(e);
+				}
+			}
+
+			final int middle = segments.size() / 2;
+			final AggregateTask left = new AggregateTask(segments.subList(0, middle), today);
+			final AggregateTask right = new AggregateTask(segments.subList(middle, segments.size()), today);
+			left.fork();
+			final HistoryAggregate rightResult = right.compute();
+			return left.join().merge(rightResult);
+		}
+	}
+}
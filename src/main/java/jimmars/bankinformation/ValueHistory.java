@@ -0,0 +1,252 @@
+package jimmars.bankinformation;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stores how the value of each account's bank changes over time. Every account has a
+ * directory with one segment file per day, named {@code yyyy-MM-dd.dat}, holding fixed-size
+ * big-endian records:
+ * <pre>
+ * long  time of the change, in epoch milliseconds
+ * int   item id
+ * int   quantity after the change
+ * int   price of a single item after the change
+ * long  change in the value of the item's stack
+ * </pre>
+ * Changes are computed against the last recorded bank of the account, which is kept in
+ * {@code baseline.dat} so they carry over between sessions. The first bank recorded for an
+ * account only sets the baseline.
+ * <p>
+ * {@link #record} must only be called from a single thread.
+ */
+class ValueHistory
+{
+	static final int RECORD_SIZE = 28;
+
+	private static final String SEGMENT_SUFFIX = ".dat";
+	private static final String BASELINE_FILE = "baseline.dat";
+
+	private final File directory;
+	// account -> item id -> {quantity, price}
+	private final Map<String, Map<Integer, int[]>> baselines = new HashMap<>();
+
+	ValueHistory(File directory)
+	{
+		this.directory = directory;
+	}
+
+	/**
+	 * Records the changes between the account's last recorded bank and the given items.
+	 *
+	 * @return the number of changes recorded
+	 */
+	int record(String account, List<CachedItem> items, long timestamp) throws IOException
+	{
+		final File accountDirectory = getAccountDirectory(account);
+		if (!accountDirectory.exists() && !accountDirectory.mkdirs())
+		{
+			throw new IOException("Unable to create " + accountDirectory);
+		}
+
+		Map<Integer, int[]> baseline = baselines.get(account);
+		final boolean firstRecord;
+		if (baseline == null)
+		{
+			baseline = readBaseline(new File(accountDirectory, BASELINE_FILE));
+			firstRecord = baseline == null;
+			if (firstRecord)
+			{
+				baseline = new HashMap<>();
+			}
+			baselines.put(account, baseline);
+		}
+		else
+		{
+			firstRecord = false;
+		}
+
+		final Map<Integer, int[]> removed = new HashMap<>(baseline);
+		final Map<Integer, int[]> current = new HashMap<>(items.size() * 2);
+		final ByteArrayOutputStream records = new ByteArrayOutputStream();
+		final DataOutputStream out = new DataOutputStream(records);
+		int changes = 0;
+
+		for (CachedItem item : items)
+		{
+			final int[] old = removed.remove(item.getId());
+			current.put(item.getId(), new int[]{item.getQuantity(), item.getValue()});
+
+			if (old != null && old[0] == item.getQuantity() && old[1] == item.getValue())
+			{
+				continue;
+			}
+
+			final long oldValue = old != null ? (long) old[0] * old[1] : 0;
+			writeRecord(out, timestamp, item.getId(), item.getQuantity(), item.getValue(),
+				(long) item.getQuantity() * item.getValue() - oldValue);
+			changes++;
+		}
+
+		for (Map.Entry<Integer, int[]> entry : removed.entrySet())
+		{
+			writeRecord(out, timestamp, entry.getKey(), 0, entry.getValue()[1],
+				-(long) entry.getValue()[0] * entry.getValue()[1]);
+			changes++;
+		}
+
+		if (changes == 0)
+		{
+			return 0;
+		}
+
+		if (!firstRecord)
+		{
+			final File segment = new File(accountDirectory, segmentName(toDate(timestamp)));
+			try (FileOutputStream segmentOut = new FileOutputStream(segment, true))
+			{
+				records.writeTo(segmentOut);
+			}
+		}
+
+		baselines.put(account, current);
+		writeBaseline(new File(accountDirectory, BASELINE_FILE), current);
+		return firstRecord ? 0 : changes;
+	}
+
+	/**
+	 * Returns the account's segment files for the days between {@code from} and {@code to},
+	 * inclusive, in date order.
+	 */
+	List<File> getSegments(String account, LocalDate from, LocalDate to)
+	{
+		final List<File> segments = new ArrayList<>();
+		final File[] files = getAccountDirectory(account).listFiles();
+		if (files == null)
+		{
+			return segments;
+		}
+
+		for (File file : files)
+		{
+			final LocalDate date = segmentDate(file);
+			if (date != null && !date.isBefore(from) && !date.isAfter(to))
+			{
+				segments.add(file);
+			}
+		}
+
+		segments.sort((a, b) -> a.getName().compareTo(b.getName()));
+		return segments;
+	}
+
+	File getAccountDirectory(String account)
+	{
+		return new File(directory, account.replaceAll("[^A-Za-z0-9 _-]", "_"));
+	}
+
+	static LocalDate toDate(long timestamp)
+	{
+		return Instant.ofEpochMilli(timestamp).atZone(ZoneId.systemDefault()).toLocalDate();
+	}
+
+	static String segmentName(LocalDate date)
+	{
+		return date + SEGMENT_SUFFIX;
+	}
+
+	static LocalDate segmentDate(File segment)
+	{
+		final String name = segment.getName();
+		if (!name.endsWith(SEGMENT_SUFFIX))
+		{
+			return null;
+		}
+
+		try
+		{
+			return LocalDate.parse(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+		}
+		catch (DateTimeParseException e)
+		{
+			return null;
+		}
+	}
+
+	private static void writeRecord(DataOutputStream out, long timestamp, int id, int quantity, int price, long change) throws IOException
+	{
+		out.writeLong(timestamp);
+		out.writeInt(id);
+		out.writeInt(quantity);
+		out.writeInt(price);
+		out.writeLong(change);
+	}
+
+	private static Map<Integer, int[]> readBaseline(File file) throws IOException
+	{
+		if (!file.exists())
+		{
+			return null;
+		}
+
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file))))
+		{
+			final int count = in.readInt();
+			final Map<Integer, int[]> baseline = new HashMap<>(count * 2);
+			for (int i = 0; i < count; i++)
+			{
+				baseline.put(in.readInt(), new int[]{in.readInt(), in.readInt()});
+			}
+			return baseline;
+		}
+		catch (EOFException e)
+		{
+			// A truncated baseline is treated as missing, and rewritten on the next record
+			return null;
+		}
+	}
+
+	/**
+	 * Writes the baseline to a temporary file first, so a write cut short never leaves a
+	 * truncated baseline, which would lose the changes until the next record.
+	 */
+	private static void writeBaseline(File file, Map<Integer, int[]> baseline) throws IOException
+	{
+		final File temp = new File(file.getPath() + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp))))
+		{
+			out.writeInt(baseline.size());
+			for (Map.Entry<Integer, int[]> entry : baseline.entrySet())
+			{
+				out.writeInt(entry.getKey());
+				out.writeInt(entry.getValue()[0]);
+				out.writeInt(entry.getValue()[1]);
+			}
+		}
+
+		if (!temp.renameTo(file))
+		{
+			// Windows does not replace existing files on rename
+			if (!file.delete() || !temp.renameTo(file))
+			{
+				throw new IOException("Unable to replace " + file);
+			}
+		}
+	}
+}
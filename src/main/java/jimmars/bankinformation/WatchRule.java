@@ -0,0 +1,148 @@
+package jimmars.bankinformation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import lombok.Value;
+import net.runelite.client.util.QuantityFormatter;
+
+/**
+ * A threshold on the total bank value, the value of a bank tag or the quantity of an item.
+ * Rules are written one per line, as {@code total > 1b}, {@code tag:pvm < 500m} or
+ * {@code item:385 < 1000}. Tags are matched in lower case, as bank tags are stored that way.
+ */
+@Value
+class WatchRule
+{
+	// How far a value has to move back past the threshold before the rule can fire again
+	static final double HYSTERESIS = 0.05;
+
+	private static final Pattern RULE_PATTERN = Pattern.compile(
+		"(total|tag:(.+?)|item:(\\d+))\\s*([<>])\\s*(\\d+(?:\\.\\d+)?)\\s*([kmb]?)", Pattern.CASE_INSENSITIVE);
+
+	enum Target
+	{
+		TOTAL,
+		TAG,
+		ITEM
+	}
+
+	String text;
+	Target target;
+	String tag;
+	int itemId;
+	boolean below;
+	long threshold;
+
+	/**
+	 * Parses one rule per line, skipping blank lines and lines that are not valid rules.
+	 */
+	static List<WatchRule> parseAll(String rules)
+	{
+		final List<WatchRule> parsed = new ArrayList<>();
+		for (String line : rules.split("\n"))
+		{
+			final WatchRule rule = parse(line);
+			if (rule != null)
+			{
+				parsed.add(rule);
+			}
+		}
+		return parsed;
+	}
+
+	/**
+	 * Parses a rule, returning null if the line is not a valid rule.
+	 */
+	static WatchRule parse(String line)
+	{
+		final String text = line.trim();
+		final Matcher matcher = RULE_PATTERN.matcher(text);
+		if (!matcher.matches())
+		{
+			return null;
+		}
+
+		final Target target;
+		if (matcher.group(2) != null)
+		{
+			target = Target.TAG;
+		}
+		else if (matcher.group(3) != null)
+		{
+			target = Target.ITEM;
+		}
+		else
+		{
+			target = Target.TOTAL;
+		}
+
+		final long multiplier;
+		switch (matcher.group(6).toLowerCase(Locale.ROOT))
+		{
+			case "k":
+				multiplier = 1_000L;
+				break;
+			case "m":
+				multiplier = 1_000_000L;
+				break;
+			case "b":
+				multiplier = 1_000_000_000L;
+				break;
+			default:
+				multiplier = 1L;
+		}
+
+		final long threshold;
+		try
+		{
+			threshold = (long) (Double.parseDouble(matcher.group(5)) * multiplier);
+			final int itemId = target == Target.ITEM ? Integer.parseInt(matcher.group(3)) : -1;
+			final String tag = target == Target.TAG ? matcher.group(2).trim().toLowerCase(Locale.ROOT) : null;
+			if (tag != null && tag.isEmpty())
+			{
+				return null;
+			}
+			return new WatchRule(text, target, tag, itemId, matcher.group(4).equals("<"), threshold);
+		}
+		catch (NumberFormatException e)
+		{
+			return null;
+		}
+	}
+
+	boolean matches(long value)
+	{
+		return below ? value < threshold : value > threshold;
+	}
+
+	/**
+	 * Whether the value has moved far enough back past the threshold to fire again.
+	 */
+	boolean rearms(long value)
+	{
+		final long margin = Math.max(1, (long) (threshold * HYSTERESIS));
+		return below ? value >= threshold + margin : value <= threshold - margin;
+	}
+
+	String describe(long value)
+	{
+		final String subject;
+		switch (target)
+		{
+			case TAG:
+				subject = "Value of tag " + tag;
+				break;
+			case ITEM:
+				subject = "Quantity of item " + itemId;
+				break;
+			default:
+				subject = "Bank value";
+		}
+
+		return subject + " is " + (below ? "below " : "above ") + QuantityFormatter.quantityToStackSize(threshold)
+			+ " (" + QuantityFormatter.quantityToStackSize(value) + ")";
+	}
+}
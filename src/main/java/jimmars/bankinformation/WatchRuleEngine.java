@@ -0,0 +1,166 @@
+package jimmars.bankinformation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Evaluates {@link WatchRule}s as the bank changes. Rules are indexed by the item id or bank
+ * tag they watch, so each delta only re-evaluates the rules it can affect, using the running
+ * totals instead of rescanning the bank.
+ * <p>
+ * A rule fires when its condition becomes true, and can only fire again after the value has
+ * moved back past the threshold by the rule's hysteresis. The first evaluation after the rules
+ * are set only records whether each rule holds, so existing conditions do not notify.
+ * <p>
+ * Must only be used from the client thread.
+ */
+class WatchRuleEngine
+{
+	private final GroupAggregator groupAggregator;
+	private final Consumer<String> notifier;
+
+	private final Map<Integer, List<RuleState>> itemRules = new HashMap<>();
+	private final Map<String, List<RuleState>> tagRules = new HashMap<>();
+	private final List<RuleState> totalRules = new ArrayList<>();
+	private final List<RuleState> allRules = new ArrayList<>();
+	private boolean primed;
+
+	WatchRuleEngine(GroupAggregator groupAggregator, Consumer<String> notifier)
+	{
+		this.groupAggregator = groupAggregator;
+		this.notifier = notifier;
+	}
+
+	void setRules(List<WatchRule> rules)
+	{
+		itemRules.clear();
+		tagRules.clear();
+		totalRules.clear();
+		allRules.clear();
+		primed = false;
+
+		for (WatchRule rule : rules)
+		{
+			final RuleState state = new RuleState(rule);
+			allRules.add(state);
+
+			switch (rule.getTarget())
+			{
+				case ITEM:
+					itemRules.computeIfAbsent(rule.getItemId(), k -> new ArrayList<>()).add(state);
+					break;
+				case TAG:
+					tagRules.computeIfAbsent(rule.getTag(), k -> new ArrayList<>()).add(state);
+					break;
+				default:
+					totalRules.add(state);
+			}
+		}
+	}
+
+	/**
+	 * Re-evaluates the rules affected by the deltas. The group aggregator must already include
+	 * the deltas.
+	 */
+	void apply(BankSnapshot snapshot, List<ItemDelta> deltas)
+	{
+		if (allRules.isEmpty())
+		{
+			return;
+		}
+
+		if (!primed)
+		{
+			for (RuleState state : allRules)
+			{
+				state.triggered = state.rule.matches(valueOf(state.rule, snapshot));
+			}
+			primed = true;
+			return;
+		}
+
+		if (deltas.isEmpty())
+		{
+			return;
+		}
+
+		final Set<RuleState> affected = new LinkedHashSet<>(totalRules);
+		for (ItemDelta delta : deltas)
+		{
+			affected.addAll(itemRules.getOrDefault(delta.getId(), Collections.emptyList()));
+			addTagRules(affected, delta.getBefore());
+			addTagRules(affected, delta.getAfter());
+		}
+
+		for (RuleState state : affected)
+		{
+			evaluate(state, snapshot);
+		}
+	}
+
+	private void addTagRules(Set<RuleState> affected, CachedItem item)
+	{
+		if (item == null || tagRules.isEmpty())
+		{
+			return;
+		}
+
+		for (String tag : item.getTags())
+		{
+			final List<RuleState> rules = tagRules.get(tag);
+			if (rules != null)
+			{
+				affected.addAll(rules);
+			}
+		}
+	}
+
+	private void evaluate(RuleState state, BankSnapshot snapshot)
+	{
+		final WatchRule rule = state.rule;
+		final long value = valueOf(rule, snapshot);
+
+		if (rule.matches(value))
+		{
+			if (!state.triggered)
+			{
+				state.triggered = true;
+				notifier.accept(rule.describe(value));
+			}
+		}
+		else if (state.triggered && rule.rearms(value))
+		{
+			state.triggered = false;
+		}
+	}
+
+	private long valueOf(WatchRule rule, BankSnapshot snapshot)
+	{
+		switch (rule.getTarget())
+		{
+			case ITEM:
+				return snapshot.getQuantity(rule.getItemId());
+			case TAG:
+				return groupAggregator.getValue(GroupBy.TAG, rule.getTag());
+			default:
+				return snapshot.getTotalValue();
+		}
+	}
+
+	private static class RuleState
+	{
+		private final WatchRule rule;
+		private boolean triggered;
+
+		RuleState(WatchRule rule)
+		{
+			this.rule = rule;
+		}
+	}
+}
@@ -0,0 +1,281 @@
+package jimmars.bankinformation;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+import javax.swing.SwingUtilities;
+import static org.junit.Assert.assertTrue;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Guards the bank processing, filtering and list building paths against allocation and latency
+ * regressions, using generated banks. The budgets live in {@code performance-budgets.properties}
+ * next to this class, so they can be tightened as the paths get faster.
+ * <p>
+ * Allocation budgets and the growth of the per item cost with the bank size are always checked.
+ * Wall time depends on the machine, so the time budgets are only checked when the
+ * {@value #TIME_BUDGETS_PROPERTY} system property is true, which {@code gradlew test -PtimeBudgets}
+ * sets. The panel paths are measured on the event dispatch thread, where Swing runs them.
+ */
+public class BankInformationPerformanceTest
+{
+	private static final int[] BANK_SIZES = {100, 1_000, 10_000, 50_000};
+	// Building Swing rows is far heavier per item, so populate stops short of the largest bank
+	private static final int[] POPULATE_BANK_SIZES = {100, 1_000, 10_000};
+	// Per item costs are compared against this size, as smaller banks are dominated by fixed costs
+	private static final int SCALING_BASE_SIZE = 1_000;
+
+	static final String TIME_BUDGETS_PROPERTY = "bankinformation.timeBudgets";
+
+	private static final String[] TAGS = {"pvm", "skilling", "slayer", "raids", "herbs"};
+
+	private static final int WARMUP_ITERATIONS = 5;
+	private static final int ITERATIONS = 10;
+	private static final int POPULATE_ITERATIONS = 3;
+
+	private static Properties budgets;
+	private static com.sun.management.ThreadMXBean threadBean;
+
+	@BeforeClass
+	public static void loadBudgets() throws IOException
+	{
+		budgets = new Properties();
+		try (InputStream in = BankInformationPerformanceTest.class.getResourceAsStream("performance-budgets.properties"))
+		{
+			budgets.load(in);
+		}
+
+		final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean
+			&& ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported())
+		{
+			threadBean = (com.sun.management.ThreadMXBean) bean;
+			threadBean.setThreadAllocatedMemoryEnabled(true);
+		}
+	}
+
+	@Test
+	public void testProcessing()
+	{
+		final Map<Integer, Measurement> measurements = new LinkedHashMap<>();
+		for (int size : BANK_SIZES)
+		{
+			final GroupAggregator groupAggregator = new GroupAggregator();
+			final WatchRuleEngine watchRuleEngine = new WatchRuleEngine(groupAggregator, message -> {});
+			watchRuleEngine.setRules(WatchRule.parseAll("total > 1b\ntag:pvm < 500m\nitem:1 < 1000"));
+			final BankProcessor processor = new BankProcessor(new BankSnapshotService(), groupAggregator, watchRuleEngine);
+
+			// Alternate between two banks that differ in a few items, like a deposit does
+			final List<CachedItem> bank = generateBank(size);
+			final List<CachedItem> changedBank = changeBank(bank);
+			final boolean[] changed = {false};
+
+			measurements.put(size, measure(size, ITERATIONS, () ->
+			{
+				processor.process(changed[0] ? bank : changedBank);
+				changed[0] = !changed[0];
+			}));
+		}
+
+		check("process", measurements);
+	}
+
+	@Test
+	public void testFiltering() throws Exception
+	{
+		final Map<Integer, Measurement> byName = new LinkedHashMap<>();
+		final Map<Integer, Measurement> byTag = new LinkedHashMap<>();
+		for (int size : BANK_SIZES)
+		{
+			final List<CachedItem> bank = generateBank(size);
+			final BankInformationPanel panel = onEventDispatchThread(() -> buildPanel(bank, "item 1"));
+
+			byName.put(size, onEventDispatchThread(() -> measure(size, ITERATIONS, panel::getFilteredValues)));
+
+			byTag.put(size, onEventDispatchThread(() ->
+			{
+				panel.bankTagsComboBox.setSelectedItem(TAGS[0]);
+				return measure(size, ITERATIONS, panel::getFilteredValues);
+			}));
+		}
+
+		check("filter", byName);
+		check("filterByTag", byTag);
+	}
+
+	@Test
+	public void testPopulate() throws Exception
+	{
+		final Map<Integer, Measurement> measurements = new LinkedHashMap<>();
+		for (int size : POPULATE_BANK_SIZES)
+		{
+			final List<CachedItem> bank = generateBank(size);
+			final BankInformationPanel panel = onEventDispatchThread(() -> buildPanel(bank, ""));
+			measurements.put(size, onEventDispatchThread(() -> measure(size, POPULATE_ITERATIONS, panel::populate)));
+		}
+
+		check("populate", measurements);
+	}
+
+	private static BankInformationPanel buildPanel(List<CachedItem> bank, String nameFilter)
+	{
+		final BankSnapshot snapshot = new BankSnapshot(1, bank);
+		final BankInformationPanel panel = new BankInformationPanel(null);
+		panel.update(snapshot, new ArrayList<>(snapshot.getTags()), new GroupAggregator().getAllTotals());
+		panel.setNameFilter(nameFilter);
+		panel.onActivate();
+		return panel;
+	}
+
+	/**
+	 * Runs the call on the event dispatch thread and waits for its result.
+	 */
+	private static <T> T onEventDispatchThread(Callable<T> call) throws Exception
+	{
+		final FutureTask<T> task = new FutureTask<>(call);
+		SwingUtilities.invokeAndWait(task);
+		return task.get();
+	}
+
+	/**
+	 * Measures the best wall time and allocation of a call, after warming it up.
+	 */
+	private static Measurement measure(int size, int iterations, Runnable call)
+	{
+		for (int i = 0; i < Math.min(WARMUP_ITERATIONS, iterations); i++)
+		{
+			call.run();
+		}
+
+		final long threadId = Thread.currentThread().getId();
+		long bestNanos = Long.MAX_VALUE;
+		long bestBytes = Long.MAX_VALUE;
+		for (int i = 0; i < iterations; i++)
+		{
+			final long bytesBefore = threadBean != null ? threadBean.getThreadAllocatedBytes(threadId) : 0;
+			final long start = System.nanoTime();
+			call.run();
+			final long nanos = System.nanoTime() - start;
+			final long bytes = threadBean != null ? threadBean.getThreadAllocatedBytes(threadId) - bytesBefore : 0;
+
+			bestNanos = Math.min(bestNanos, nanos);
+			bestBytes = Math.min(bestBytes, bytes);
+		}
+
+		return new Measurement(size, bestNanos, bestBytes);
+	}
+
+	/**
+	 * Checks the largest bank against the path's budgets, and the growth of the per item cost
+	 * from the scaling base size to the largest bank. The time budget is only checked when
+	 * time budgets are enabled.
+	 */
+	private static void check(String path, Map<Integer, Measurement> measurements)
+	{
+		final List<Measurement> sorted = new ArrayList<>(measurements.values());
+		final Measurement largest = sorted.get(sorted.size() - 1);
+		final Measurement base = measurements.get(SCALING_BASE_SIZE);
+
+		final double nanosPerItem = largest.nanosPerItem();
+		final double bytesPerItem = largest.bytesPerItem();
+		final double nanosBudget = budget(path + ".nanosPerItem");
+		final double bytesBudget = budget(path + ".bytesPerItem");
+
+		if (Boolean.getBoolean(TIME_BUDGETS_PROPERTY))
+		{
+			assertTrue(String.format("%s takes %.0fns per item at %d items, budget is %.0fns", path, nanosPerItem, largest.size, nanosBudget),
+				nanosPerItem <= nanosBudget);
+		}
+
+		final double timeScaling = nanosPerItem / Math.max(base.nanosPerItem(), 1);
+		final double maxTimeScaling = budget("maxTimeScaling");
+		assertTrue(String.format("%s per item time grows %.1fx from %d to %d items, limit is %.1fx", path, timeScaling, base.size, largest.size, maxTimeScaling),
+			timeScaling <= maxTimeScaling);
+
+		if (threadBean == null)
+		{
+			return;
+		}
+
+		assertTrue(String.format("%s allocates %.0f bytes per item at %d items, budget is %.0f bytes", path, bytesPerItem, largest.size, bytesBudget),
+			bytesPerItem <= bytesBudget);
+
+		final double allocationScaling = bytesPerItem / Math.max(base.bytesPerItem(), 1);
+		final double maxAllocationScaling = budget("maxAllocationScaling");
+		assertTrue(String.format("%s per item allocation grows %.1fx from %d to %d items, limit is %.1fx", path, allocationScaling, base.size, largest.size, maxAllocationScaling),
+			allocationScaling <= maxAllocationScaling);
+	}
+
+	private static double budget(String key)
+	{
+		final String value = budgets.getProperty(key);
+		if (value == null)
+		{
+			throw new IllegalStateException("Missing performance budget " + key);
+		}
+		return Double.parseDouble(value);
+	}
+
+	static List<CachedItem> generateBank(int size)
+	{
+		final Random random = new Random(size);
+		final List<CachedItem> bank = new ArrayList<>(size);
+		for (int id = 1; id <= size; id++)
+		{
+			final List<String> tags = random.nextInt(3) == 0
+				? Arrays.asList(TAGS[random.nextInt(TAGS.length)], TAGS[random.nextInt(TAGS.length)])
+				: Collections.singletonList("");
+			bank.add(new CachedItem(id, 1 + random.nextInt(10_000), "Item " + id, random.nextInt(1_000_000), tags));
+		}
+		return bank;
+	}
+
+	/**
+	 * Returns a copy of the bank with the quantity of every 100th item changed.
+	 */
+	private static List<CachedItem> changeBank(List<CachedItem> bank)
+	{
+		final List<CachedItem> changed = new ArrayList<>(bank);
+		for (int i = 0; i < changed.size(); i += 100)
+		{
+			final CachedItem item = changed.get(i);
+			changed.set(i, new CachedItem(item.getId(), item.getQuantity() + 1, item.getName(), item.getValue(), item.getTags()));
+		}
+		return changed;
+	}
+
+	private static class Measurement
+	{
+		private final int size;
+		private final long nanos;
+		private final long bytes;
+
+		Measurement(int size, long nanos, long bytes)
+		{
+			this.size = size;
+			this.nanos = nanos;
+			this.bytes = bytes;
+		}
+
+		double nanosPerItem()
+		{
+			return (double) nanos / size;
+		}
+
+		double bytesPerItem()
+		{
+			return (double) bytes / size;
+		}
+	}
+}
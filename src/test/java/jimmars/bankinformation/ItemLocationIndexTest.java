@@ -0,0 +1,124 @@
+package jimmars.bankinformation;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ItemLocationIndexTest
+{
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testReplaceAndUpdate()
+	{
+		final ItemLocationIndex index = new ItemLocationIndex();
+		index.setName(385, "Shark");
+		index.replace("Zezima", "Bank", quantities(385, 1000, 4151, 1));
+		index.replace("Zezima", "Inventory", quantities(385, 20));
+		assertTrue(index.isLive("Zezima", "Bank"));
+		assertFalse(index.isLive("Lynx Titan", "Bank"));
+
+		final List<ItemLocation> sharks = index.getLocations(385);
+		assertEquals(2, sharks.size());
+		assertEquals(new ItemLocation(385, "Shark", "Zezima", "Bank", 1000), sharks.get(0));
+		assertEquals("Item 4151", index.getLocations(4151).get(0).getItemName());
+
+		// A quantity of 0 removes the item from the container
+		index.update("Zezima", "Bank", quantities(385, 0, 4151, 2));
+		assertEquals(1, index.getLocations(385).size());
+		assertEquals(2, index.getLocations(4151).get(0).getQuantity());
+
+		// Replacing drops the items no longer held
+		index.replace("Zezima", "Inventory", quantities(4151, 1));
+		assertEquals(0, index.getLocations(385).size());
+		assertEquals(0, index.find("shark", 5).size());
+	}
+
+	@Test
+	public void testFind()
+	{
+		final ItemLocationIndex index = new ItemLocationIndex();
+		index.setName(385, "Shark");
+		index.setName(379, "Lobster");
+		index.setName(11936, "Dark crab");
+		index.replace("Zezima", "Bank", quantities(385, 1000, 379, 10));
+
+		assertEquals(1, index.find("SHA", 5).size());
+		assertEquals(2, index.find("", 5).size());
+		assertEquals(1, index.find("", 1).size());
+		// Items that are named but not held anywhere are left out
+		assertEquals(0, index.find("crab", 5).size());
+	}
+
+	@Test
+	public void testSaveAndLoad() throws Exception
+	{
+		final File file = new File(folder.getRoot(), "locations.dat");
+
+		final ItemLocationIndex saved = new ItemLocationIndex();
+		saved.setName(385, "Shark");
+		saved.setName(379, "Lobster");
+		saved.replace("Zezima", "Bank", quantities(385, 1000));
+		saved.replace("Lynx Titan", "Bank", quantities(385, 5, 379, 10));
+		saved.save(file);
+		// Saving again replaces the file
+		saved.save(file);
+
+		final ItemLocationIndex loaded = new ItemLocationIndex();
+		loaded.load(file);
+		assertEquals(2, loaded.getLocations(385).size());
+		assertEquals("Lobster", loaded.getLocations(379).get(0).getItemName());
+		// Loaded containers are not live until seen this session
+		assertFalse(loaded.isLive("Zezima", "Bank"));
+	}
+
+	@Test
+	public void testLoadKeepsLiveContainers() throws Exception
+	{
+		final File file = new File(folder.getRoot(), "locations.dat");
+
+		final ItemLocationIndex saved = new ItemLocationIndex();
+		saved.setName(385, "Shark");
+		saved.replace("Zezima", "Bank", quantities(385, 1000));
+		saved.replace("Lynx Titan", "Bank", quantities(385, 5));
+		saved.save(file);
+
+		// The bank was seen before the stored index finished loading
+		final ItemLocationIndex index = new ItemLocationIndex();
+		index.setName(385, "Raw shark");
+		index.replace("Zezima", "Bank", quantities(385, 1200));
+		index.load(file);
+
+		final List<ItemLocation> sharks = index.getLocations(385);
+		assertEquals(2, sharks.size());
+		assertEquals(new ItemLocation(385, "Raw shark", "Zezima", "Bank", 1200), sharks.get(0));
+		assertEquals(new ItemLocation(385, "Raw shark", "Lynx Titan", "Bank", 5), sharks.get(1));
+	}
+
+	@Test
+	public void testLoadMissingFile() throws Exception
+	{
+		final ItemLocationIndex index = new ItemLocationIndex();
+		index.load(new File(folder.getRoot(), "missing.dat"));
+		assertEquals(Collections.emptyList(), index.find("", 5));
+	}
+
+	private static Map<Integer, Integer> quantities(int... idsAndQuantities)
+	{
+		final Map<Integer, Integer> quantities = new HashMap<>();
+		for (int i = 0; i < idsAndQuantities.length; i += 2)
+		{
+			quantities.put(idsAndQuantities[i], idsAndQuantities[i + 1]);
+		}
+		return quantities;
+	}
+}
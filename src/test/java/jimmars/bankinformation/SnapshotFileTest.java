@@ -0,0 +1,131 @@
+package jimmars.bankinformation;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SnapshotFileTest
+{
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testWriteAndRead() throws Exception
+	{
+		final File path = new File(folder.getRoot(), "snapshot.bin");
+		final List<CachedItem> items = Arrays.asList(
+			new CachedItem(995, 1_500_000, "Coins", 1, Collections.emptyList()),
+			new CachedItem(385, 1000, "Shark", 900, Collections.emptyList())
+		);
+
+		try (SnapshotFileWriter writer = new SnapshotFileWriter(path);
+			SnapshotFileReader reader = new SnapshotFileReader(path))
+		{
+			assertEquals(0, reader.read().size());
+
+			assertTrue(writer.write(items));
+			SnapshotFileReader.Snapshot snapshot = reader.read();
+			assertEquals(2, snapshot.size());
+			assertEquals(995, snapshot.getId(0));
+			assertEquals(1_500_000, snapshot.getQuantity(0));
+			assertEquals(385, snapshot.getId(1));
+			assertEquals(900, snapshot.getPrice(1));
+			assertEquals(1_500_000L + 900_000L, snapshot.getTotalValue());
+			assertEquals(0, snapshot.getSequence() % 2);
+
+			// An unchanged bank leaves the file alone
+			assertFalse(writer.write(items));
+			assertEquals(snapshot.getSequence(), reader.read().getSequence());
+
+			assertTrue(writer.write(items.subList(1, 2)));
+			SnapshotFileReader.Snapshot updated = reader.read();
+			assertEquals(1, updated.size());
+			assertEquals(900_000L, updated.getTotalValue());
+			assertTrue(updated.getSequence() > snapshot.getSequence());
+		}
+	}
+
+	@Test
+	public void testReopenAdvancesSequence() throws Exception
+	{
+		final File path = new File(folder.getRoot(), "snapshot.bin");
+		final List<CachedItem> items = Collections.singletonList(new CachedItem(385, 1000, "Shark", 900, Collections.emptyList()));
+
+		final long written;
+		try (SnapshotFileWriter writer = new SnapshotFileWriter(path);
+			SnapshotFileReader reader = new SnapshotFileReader(path))
+		{
+			writer.write(items);
+			written = reader.read().getSequence();
+		}
+
+		try (SnapshotFileWriter writer = new SnapshotFileWriter(path);
+			SnapshotFileReader reader = new SnapshotFileReader(path))
+		{
+			// Reopening resets the file, which readers must see as a change
+			SnapshotFileReader.Snapshot reopened = reader.read();
+			assertEquals(0, reopened.size());
+			assertEquals(0, reopened.getSequence() % 2);
+			assertTrue(reopened.getSequence() > written);
+
+			writer.write(items);
+			assertTrue(reader.read().getSequence() > reopened.getSequence());
+		}
+	}
+
+	@Test
+	public void testDetectsTornRecords() throws Exception
+	{
+		final File path = new File(folder.getRoot(), "snapshot.bin");
+		try (SnapshotFileWriter writer = new SnapshotFileWriter(path);
+			SnapshotFileReader reader = new SnapshotFileReader(path))
+		{
+			writer.write(Collections.singletonList(new CachedItem(385, 1000, "Shark", 900, Collections.emptyList())));
+
+			// A record changed without its checksum, as a reader racing the writer would see it
+			try (RandomAccessFile file = new RandomAccessFile(path, "rw"))
+			{
+				file.seek(SnapshotFileReader.HEADER_SIZE + 4);
+				file.writeInt(12345);
+			}
+
+			try
+			{
+				reader.read();
+				fail("Read a snapshot that does not match its checksum");
+			}
+			catch (IOException e)
+			{
+				// expected
+			}
+		}
+	}
+
+	@Test
+	public void testTruncatesToCapacity() throws Exception
+	{
+		final File path = new File(folder.getRoot(), "snapshot.bin");
+		final CachedItem[] items = new CachedItem[SnapshotFileReader.CAPACITY + 10];
+		for (int i = 0; i < items.length; i++)
+		{
+			items[i] = new CachedItem(i, 1, "Item " + i, 2, Collections.emptyList());
+		}
+
+		try (SnapshotFileWriter writer = new SnapshotFileWriter(path);
+			SnapshotFileReader reader = new SnapshotFileReader(path))
+		{
+			writer.write(Arrays.asList(items));
+			assertEquals(SnapshotFileReader.CAPACITY, reader.read().size());
+		}
+	}
+}
@@ -0,0 +1,149 @@
+package jimmars.bankinformation;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import static jimmars.bankinformation.ValueHistoryTest.bank;
+import static jimmars.bankinformation.ValueHistoryTest.timestamp;
+import static org.junit.Assert.assertEquals;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ValueAnalyticsTest
+{
+	private static final String ACCOUNT = "Zezima";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private ValueHistory history;
+	private ValueAnalytics analytics;
+
+	@Before
+	public void before()
+	{
+		history = new ValueHistory(folder.getRoot());
+		analytics = new ValueAnalytics(history);
+	}
+
+	@After
+	public void after()
+	{
+		analytics.shutdown();
+	}
+
+	@Test
+	public void testMergesSegments() throws Exception
+	{
+		final LocalDate first = LocalDate.now().minusDays(3);
+		history.record(ACCOUNT, bank(1000, 900), timestamp(first, 10));
+		for (int day = 0; day < 3; day++)
+		{
+			// A hundred more sharks every day
+			history.record(ACCOUNT, bank(1100 + day * 100, 900), timestamp(first.plusDays(day), 12));
+		}
+
+		final HistoryAggregate aggregate = analytics.aggregate(ACCOUNT, first, LocalDate.now());
+		assertEquals(3 * 100L * 900, aggregate.getNetChange());
+		assertEquals(Long.valueOf(3 * 100L * 900), aggregate.getTopGainers(1).get(0).getValue());
+
+		final TreeMap<LocalDate, Long> daily = aggregate.getDailyNetChange();
+		assertEquals(3, daily.size());
+		assertEquals(first, daily.firstKey());
+		assertEquals(Long.valueOf(100L * 900), daily.get(first.plusDays(1)));
+
+		// Only the days in range are merged
+		assertEquals(2 * 100L * 900, analytics.aggregate(ACCOUNT, first.plusDays(1), LocalDate.now()).getNetChange());
+	}
+
+	@Test
+	public void testTagChangeByDay() throws Exception
+	{
+		final LocalDate first = LocalDate.now().minusDays(2);
+		final List<CachedItem> before = Arrays.asList(
+			new CachedItem(385, 1000, "Shark", 900, Collections.singletonList("food")),
+			new CachedItem(4151, 1, "Abyssal whip", 2_000_000, Collections.singletonList("pvm"))
+		);
+		history.record(ACCOUNT, before, timestamp(first, 10));
+		history.record(ACCOUNT, Arrays.asList(
+			new CachedItem(385, 900, "Shark", 900, Collections.singletonList("food")),
+			before.get(1)
+		), timestamp(first, 12));
+		history.record(ACCOUNT, Collections.singletonList(before.get(1)), timestamp(first.plusDays(1), 12));
+
+		final HistoryAggregate aggregate = analytics.aggregate(ACCOUNT, first, LocalDate.now());
+		final Map<String, TreeMap<LocalDate, Long>> byDay = aggregate.getTagChangeByDay(id -> id == 385
+			? Collections.singletonList("food")
+			: Collections.singletonList("pvm"));
+		assertEquals(1, byDay.size());
+		assertEquals(Long.valueOf(-100L * 900), byDay.get("food").get(first));
+		assertEquals(Long.valueOf(-900L * 900), byDay.get("food").get(first.plusDays(1)));
+
+		final List<HistoryRow> rows = HistoryQuery.TAG_DAILY_CHANGE.toRows(aggregate, before, LocalDate.now());
+		assertEquals(2, rows.size());
+		assertEquals(-900L * 900, rows.get(0).getChange());
+	}
+
+	@Test
+	public void testCachesClosedSegments() throws Exception
+	{
+		final LocalDate yesterday = LocalDate.now().minusDays(1);
+		history.record(ACCOUNT, bank(1000, 900), timestamp(yesterday, 10));
+		history.record(ACCOUNT, bank(1100, 900), timestamp(yesterday, 12));
+
+		// A partially written last record is ignored, and does not keep the segment from being cached
+		final File segment = history.getSegments(ACCOUNT, yesterday, yesterday).get(0);
+		try (FileOutputStream out = new FileOutputStream(segment, true))
+		{
+			out.write(new byte[ValueHistory.RECORD_SIZE / 2]);
+		}
+		assertEquals(100L * 900, analytics.aggregate(ACCOUNT, yesterday, yesterday).getNetChange());
+
+		// Past segments are taken from the cache while their length is unchanged
+		corruptChange(segment);
+		assertEquals(100L * 900, analytics.aggregate(ACCOUNT, yesterday, yesterday).getNetChange());
+
+		// and rescanned once it changes
+		try (FileOutputStream out = new FileOutputStream(segment, true))
+		{
+			out.write(new byte[ValueHistory.RECORD_SIZE / 2]);
+		}
+		assertEquals(0, analytics.aggregate(ACCOUNT, yesterday, yesterday).getNetChange());
+	}
+
+	@Test
+	public void testRescansToday() throws Exception
+	{
+		final LocalDate today = LocalDate.now();
+		history.record(ACCOUNT, bank(1000, 900), timestamp(today, 0));
+		history.record(ACCOUNT, bank(1100, 900), timestamp(today, 0) + 1);
+
+		final File segment = history.getSegments(ACCOUNT, today, today).get(0);
+		assertEquals(100L * 900, analytics.aggregate(ACCOUNT, today, today).getNetChange());
+
+		// Today's segment is still being written, so it is never cached
+		corruptChange(segment);
+		assertEquals(0, analytics.aggregate(ACCOUNT, today, today).getNetChange());
+	}
+
+	/**
+	 * Zeroes the change of the first record, without changing the length of the segment.
+	 */
+	private static void corruptChange(File segment) throws Exception
+	{
+		try (RandomAccessFile file = new RandomAccessFile(segment, "rw"))
+		{
+			file.seek(ValueHistory.RECORD_SIZE - 8);
+			file.writeLong(0);
+		}
+	}
+}
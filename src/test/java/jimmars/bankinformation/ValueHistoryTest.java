@@ -0,0 +1,91 @@
+package jimmars.bankinformation;
+
+import java.io.File;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ValueHistoryTest
+{
+	private static final String ACCOUNT = "Zezima";
+	private static final LocalDate DAY = LocalDate.of(2020, 3, 14);
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testFirstRecordOnlySetsBaseline() throws Exception
+	{
+		final ValueHistory history = new ValueHistory(folder.getRoot());
+
+		assertEquals(0, history.record(ACCOUNT, bank(1000, 900), timestamp(DAY, 10)));
+		assertEquals(0, history.getSegments(ACCOUNT, DAY, DAY).size());
+		assertEquals(0, history.record(ACCOUNT, bank(1000, 900), timestamp(DAY, 11)));
+	}
+
+	@Test
+	public void testBaselineCarriesOverBetweenSessions() throws Exception
+	{
+		new ValueHistory(folder.getRoot()).record(ACCOUNT, bank(1000, 900), timestamp(DAY, 10));
+
+		// A new instance reads the baseline from disk, so the same bank records nothing
+		final ValueHistory history = new ValueHistory(folder.getRoot());
+		assertEquals(0, history.record(ACCOUNT, bank(1000, 900), timestamp(DAY, 11)));
+		assertEquals(1, history.record(ACCOUNT, bank(1500, 900), timestamp(DAY, 12)));
+
+		// The baseline is replaced through a temporary file
+		final File accountDirectory = history.getAccountDirectory(ACCOUNT);
+		assertTrue(new File(accountDirectory, "baseline.dat").exists());
+		assertFalse(new File(accountDirectory, "baseline.dat.tmp").exists());
+	}
+
+	@Test
+	public void testAppendAndScan() throws Exception
+	{
+		final ValueHistory history = new ValueHistory(folder.getRoot());
+		history.record(ACCOUNT, bank(1000, 900), timestamp(DAY, 10));
+
+		// Sharks go up by 500, and whips are added
+		assertEquals(2, history.record(ACCOUNT, Arrays.asList(
+			new CachedItem(385, 1500, "Shark", 900, Collections.emptyList()),
+			new CachedItem(4151, 1, "Abyssal whip", 2_000_000, Collections.emptyList())
+		), timestamp(DAY, 11)));
+
+		// Sharks are removed, in a segment of the next day
+		assertEquals(1, history.record(ACCOUNT, Collections.singletonList(
+			new CachedItem(4151, 1, "Abyssal whip", 2_000_000, Collections.emptyList())
+		), timestamp(DAY.plusDays(1), 11)));
+
+		final List<File> segments = history.getSegments(ACCOUNT, DAY, DAY.plusDays(1));
+		assertEquals(2, segments.size());
+		assertEquals(DAY, ValueHistory.segmentDate(segments.get(0)));
+		assertEquals(2 * ValueHistory.RECORD_SIZE, segments.get(0).length());
+
+		final SegmentAggregate first = ValueAnalytics.scan(segments.get(0), DAY, segments.get(0).length());
+		assertEquals(500L * 900 + 2_000_000L, first.getNetChange());
+		assertEquals(Long.valueOf(500L * 900), first.getItemChanges().get(385));
+
+		final SegmentAggregate second = ValueAnalytics.scan(segments.get(1), DAY.plusDays(1), segments.get(1).length());
+		assertEquals(-1500L * 900, second.getNetChange());
+
+		assertEquals(1, history.getSegments(ACCOUNT, DAY.plusDays(1), DAY.plusDays(5)).size());
+	}
+
+	static List<CachedItem> bank(int sharks, int price)
+	{
+		return Collections.singletonList(new CachedItem(385, sharks, "Shark", price, Collections.emptyList()));
+	}
+
+	static long timestamp(LocalDate date, int hour)
+	{
+		return date.atTime(hour, 0).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+	}
+}
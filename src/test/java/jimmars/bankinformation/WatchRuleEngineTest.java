@@ -0,0 +1,91 @@
+package jimmars.bankinformation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+
+public class WatchRuleEngineTest
+{
+	private final List<String> notifications = new ArrayList<>();
+
+	private WatchRuleEngine engine;
+	private BankProcessor processor;
+
+	@Before
+	public void before()
+	{
+		final GroupAggregator groupAggregator = new GroupAggregator();
+		engine = new WatchRuleEngine(groupAggregator, notifications::add);
+		processor = new BankProcessor(new BankSnapshotService(), groupAggregator, engine);
+	}
+
+	@Test
+	public void testFiresOnceAndRearms()
+	{
+		engine.setRules(WatchRule.parseAll("item:385 < 1000"));
+
+		bank(2000);
+		assertEquals(0, notifications.size());
+
+		bank(900);
+		assertEquals(1, notifications.size());
+		assertTrue(notifications.get(0).startsWith("Quantity of item 385 is below"));
+
+		// Still below, and back above the threshold but within the hysteresis
+		bank(800);
+		bank(1020);
+		bank(990);
+		assertEquals(1, notifications.size());
+
+		// Far enough above to rearm, so dropping below fires again
+		bank(1050);
+		bank(999);
+		assertEquals(2, notifications.size());
+	}
+
+	@Test
+	public void testFirstEvaluationOnlyPrimes()
+	{
+		bank(500);
+		engine.setRules(WatchRule.parseAll("item:385 < 1000\ntotal > 100"));
+
+		// Both rules already hold when they are set, which does not notify
+		bank(600);
+		assertEquals(0, notifications.size());
+
+		bank(2000);
+		bank(700);
+		assertEquals(1, notifications.size());
+	}
+
+	@Test
+	public void testTagRules()
+	{
+		engine.setRules(WatchRule.parseAll("tag:Food > 1m"));
+
+		bank(1000);
+		bank(1200);
+		assertEquals(1, notifications.size());
+		assertTrue(notifications.get(0).startsWith("Value of tag food is above"));
+
+		// Items without the tag do not affect it
+		processor.process(Arrays.asList(shark(1200),
+			new CachedItem(4151, 1, "Abyssal whip", 2_000_000, Collections.singletonList("pvm"))));
+		assertEquals(1, notifications.size());
+	}
+
+	private void bank(int sharks)
+	{
+		processor.process(Collections.singletonList(shark(sharks)));
+	}
+
+	private static CachedItem shark(int quantity)
+	{
+		return new CachedItem(385, quantity, "Shark", 900, Collections.singletonList("food"));
+	}
+}
@@ -0,0 +1,78 @@
+package jimmars.bankinformation;
+
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class WatchRuleTest
+{
+	@Test
+	public void testParse()
+	{
+		final WatchRule total = WatchRule.parse("total > 1b");
+		assertEquals(WatchRule.Target.TOTAL, total.getTarget());
+		assertFalse(total.isBelow());
+		assertEquals(1_000_000_000L, total.getThreshold());
+
+		final WatchRule tag = WatchRule.parse("  tag:PvM Gear<500m ");
+		assertEquals(WatchRule.Target.TAG, tag.getTarget());
+		assertEquals("pvm gear", tag.getTag());
+		assertTrue(tag.isBelow());
+		assertEquals(500_000_000L, tag.getThreshold());
+		assertEquals("tag:PvM Gear<500m", tag.getText());
+
+		final WatchRule item = WatchRule.parse("ITEM:385 < 1000");
+		assertEquals(WatchRule.Target.ITEM, item.getTarget());
+		assertEquals(385, item.getItemId());
+		assertEquals(1000L, item.getThreshold());
+	}
+
+	@Test
+	public void testParseSuffixes()
+	{
+		assertEquals(1_500L, WatchRule.parse("total > 1.5k").getThreshold());
+		assertEquals(2_500_000L, WatchRule.parse("total > 2.5M").getThreshold());
+		assertEquals(3_000_000_000L, WatchRule.parse("total > 3b").getThreshold());
+		assertEquals(42L, WatchRule.parse("total > 42").getThreshold());
+	}
+
+	@Test
+	public void testParseInvalid()
+	{
+		assertNull(WatchRule.parse(""));
+		assertNull(WatchRule.parse("total"));
+		assertNull(WatchRule.parse("total = 1b"));
+		assertNull(WatchRule.parse("total > 1x"));
+		assertNull(WatchRule.parse("item:shark < 10"));
+		assertNull(WatchRule.parse("item:99999999999 < 10"));
+		assertNull(WatchRule.parse("tag: < 10"));
+		assertNull(WatchRule.parse("value > 10"));
+
+		final List<WatchRule> rules = WatchRule.parseAll("total > 1b\n\nnot a rule\nitem:385 < 1000\n");
+		assertEquals(2, rules.size());
+		assertEquals(WatchRule.Target.ITEM, rules.get(1).getTarget());
+	}
+
+	@Test
+	public void testHysteresis()
+	{
+		final WatchRule above = WatchRule.parse("total > 1000");
+		assertTrue(above.matches(1001));
+		assertFalse(above.matches(1000));
+		assertFalse(above.rearms(951));
+		assertTrue(above.rearms(950));
+
+		final WatchRule below = WatchRule.parse("total < 1000");
+		assertTrue(below.matches(999));
+		assertFalse(below.rearms(1049));
+		assertTrue(below.rearms(1050));
+
+		// Small thresholds still need to move back by at least one
+		final WatchRule small = WatchRule.parse("item:1 < 10");
+		assertFalse(small.rearms(10));
+		assertTrue(small.rearms(11));
+	}
+}